@@ -0,0 +1,91 @@
+package com.jjoe64.graphview;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * steady appends of live data: a ring buffer that is already full, so every append drops the
+ * oldest point, and a compressed series that keeps the whole history.
+ * each append updates the indexes and publishes a new snapshot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AppendBenchmark {
+	/**
+	 * points of the series
+	 */
+	@Param({"1000", "100000", "10000000"})
+	public int size;
+
+	private SeriesData ring;
+	private SeriesData compressed;
+	private int next;
+	private final Random random = new Random(1);
+
+	/**
+	 * a packet of samples for the bulk appends
+	 */
+	private final double[] packetX = new double[64];
+	private final double[] packetY = new double[64];
+
+	@Setup(Level.Trial)
+	public void createRing() {
+		ring = new SeriesData(new double[0], new double[0], size);
+		SeriesData data = BenchmarkData.series(size, false);
+		SeriesSnapshot snapshot = data.snapshot();
+		for (int i=0; i<size; i++) {
+			ring.append(snapshot.getX(i), snapshot.getY(i));
+		}
+		next = size;
+	}
+
+	/**
+	 * the compressed series grows during an iteration, it starts again with size points
+	 */
+	@Setup(Level.Iteration)
+	public void createCompressed() {
+		compressed = BenchmarkData.series(size, true);
+	}
+
+	@Benchmark
+	public SeriesSnapshot appendRing() {
+		int i = next++;
+		ring.append(BenchmarkData.x(i), BenchmarkData.y(i, random));
+		return ring.snapshot();
+	}
+
+	@Benchmark
+	public SeriesSnapshot appendPacketRing() {
+		for (int j=0; j<packetX.length; j++) {
+			int i = next++;
+			packetX[j] = BenchmarkData.x(i);
+			packetY[j] = BenchmarkData.y(i, random);
+		}
+		ring.append(packetX, packetY, 0, packetX.length);
+		return ring.snapshot();
+	}
+
+	@Benchmark
+	public SeriesSnapshot appendCompressed() {
+		int i = compressed.snapshot().size();
+		compressed.append(BenchmarkData.x(i), BenchmarkData.y(i, random));
+		return compressed.snapshot();
+	}
+}
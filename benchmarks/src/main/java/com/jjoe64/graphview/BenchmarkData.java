@@ -0,0 +1,58 @@
+package com.jjoe64.graphview;
+
+import java.util.Random;
+
+/**
+ * test data of the benchmarks: a sensor signal sampled every 10 ms, a slow sine with noise
+ */
+final class BenchmarkData {
+	static final double INTERVAL = 0.01;
+
+	private BenchmarkData() {
+	}
+
+	static double x(int index) {
+		return index * INTERVAL;
+	}
+
+	static double y(int index, Random random) {
+		return 1000 * Math.sin(index / 10000.0) + random.nextGaussian();
+	}
+
+	/**
+	 * @param size number of points
+	 * @param compressed true to store them in compressed blocks
+	 * @return an unbounded series
+	 */
+	static SeriesData series(int size, boolean compressed) {
+		Random random = new Random(42);
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		for (int i=0; i<size; i++) {
+			valuesX[i] = x(i);
+			valuesY[i] = y(i, random);
+		}
+		SeriesData data = new SeriesData(valuesX, valuesY, 0);
+		data.setCompressed(compressed);
+		return data;
+	}
+
+	/**
+	 * random viewports inside of the data, their widths are spread over all zoom levels:
+	 * from a few points to all of them
+	 * @param size number of points of the data
+	 * @param count number of viewports
+	 * @return minX, maxX of each viewport
+	 */
+	static double[] viewports(int size, int count) {
+		Random random = new Random(7);
+		double[] viewports = new double[2*count];
+		for (int i=0; i<count; i++) {
+			int width = (int) Math.max(2, Math.pow(size, random.nextDouble()));
+			int from = random.nextInt(size - width + 1);
+			viewports[2*i] = x(from);
+			viewports[2*i+1] = x(from + width - 1);
+		}
+		return viewports;
+	}
+}
@@ -0,0 +1,76 @@
+package com.jjoe64.graphview;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jjoe64.graphview.LabelFormatter.MetricLabelFormatter;
+
+/**
+ * the vertical labels of random viewports: min/max of the viewport and the labels for that range,
+ * with the default formatter of the graph and with the {@link MetricLabelFormatter}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LabelBenchmark {
+	private static final int VIEWPORTS = 1024;
+	private static final int NUM_LABELS = 4;
+
+	/**
+	 * points of the series
+	 */
+	@Param({"1000", "100000", "10000000"})
+	public int size;
+
+	/**
+	 * the y values are multiplied by scale, so that the metric formatter uses its classes
+	 */
+	@Param({"1", "1000000"})
+	public double scale;
+
+	private SeriesSnapshot snapshot;
+	private double[] viewports;
+	private int next;
+	private final SeriesSnapshot.SubSet subSet = new SeriesSnapshot.SubSet();
+	private final LabelGenerator generator = new LabelGenerator();
+	private final LabelFormatter metric = new MetricLabelFormatter();
+	private final LabelBuffer labels = new LabelBuffer();
+
+	@Setup
+	public void setUp() {
+		snapshot = BenchmarkData.series(size, false).snapshot();
+		viewports = BenchmarkData.viewports(size, VIEWPORTS);
+	}
+
+	private int generate(LabelFormatter formatter) {
+		int i = next;
+		next = (next + 1) % VIEWPORTS;
+		subSet.update(snapshot, viewports[2*i], viewports[2*i+1]);
+		generator.generate(labels, scale * subSet.getMinY(), scale * subSet.getMaxY(), NUM_LABELS, formatter, true);
+		return labels.size();
+	}
+
+	@Benchmark
+	public int defaultFormatter() {
+		return generate(null);
+	}
+
+	@Benchmark
+	public int metricFormatter() {
+		return generate(metric);
+	}
+}
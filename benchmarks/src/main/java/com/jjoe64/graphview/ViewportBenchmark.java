@@ -0,0 +1,105 @@
+package com.jjoe64.graphview;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * what a graph does with the data of a series per frame, for random viewports:
+ * slicing the viewport out of the snapshot, min/max of the viewport, reading its points,
+ * and the level of detail of zoomed out viewports (one point per pixel column or less).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ViewportBenchmark {
+	private static final int VIEWPORTS = 1024;
+
+	/**
+	 * width of the graph in pixels
+	 */
+	private static final float PIXELS = 1000;
+
+	/**
+	 * points of the series
+	 */
+	@Param({"1000", "100000", "10000000"})
+	public int size;
+
+	/**
+	 * columns with the level of detail pyramid, or compressed blocks
+	 */
+	@Param({"columns", "compressed"})
+	public String storage;
+
+	private SeriesSnapshot snapshot;
+	private double[] viewports;
+	private int next;
+	private final SeriesSnapshot.SubSet subSet = new SeriesSnapshot.SubSet();
+	private final GraphViewDataBuffer levelOfDetail = new GraphViewDataBuffer();
+
+	@Setup
+	public void setUp() {
+		SeriesData data = BenchmarkData.series(size, "compressed".equals(storage));
+		data.setLevelOfDetail(true);
+		snapshot = data.snapshot();
+		viewports = BenchmarkData.viewports(size, VIEWPORTS);
+	}
+
+	private void nextViewport() {
+		int i = next;
+		next = (next + 1) % VIEWPORTS;
+		subSet.update(snapshot, viewports[2*i], viewports[2*i+1]);
+	}
+
+	/**
+	 * two binary searches and the range min/max of the y values
+	 */
+	@Benchmark
+	public double minMax() {
+		nextViewport();
+		return subSet.getMaxY() - subSet.getMinY();
+	}
+
+	/**
+	 * min/max by reading every point of the viewport, like the draw loop does
+	 */
+	@Benchmark
+	public double scan() {
+		nextViewport();
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i=0; i<subSet.size(); i++) {
+			double y = subSet.getY(i);
+			min = Math.min(min, y);
+			max = Math.max(max, y);
+		}
+		return max - min;
+	}
+
+	/**
+	 * the points that are drawn for the viewport: the level of detail if the viewport is zoomed out,
+	 * otherwise the data of the viewport
+	 */
+	@Benchmark
+	public int levelOfDetail() {
+		nextViewport();
+		if (snapshot.getLevelOfDetail(subSet.getFromIndex(), subSet.getToIndex(), PIXELS, levelOfDetail)) {
+			return levelOfDetail.size();
+		}
+		return subSet.size();
+	}
+}
@@ -0,0 +1,251 @@
+package com.jjoe64.graphview;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * {@link GraphRenderer} on a java2d Graphics2D, e.g. of a BufferedImage. Works on a headless JVM.
+ * a renderer draws one image, create one per thread to render graphs in parallel.
+ */
+public class Graphics2DRenderer implements GraphRenderer {
+	/**
+	 * the fonts measure text without a screen
+	 */
+	static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+	private final Graphics2D g;
+	private final Path2D.Float path = new Path2D.Float();
+	private final Line2D.Float line = new Line2D.Float();
+	private final Rectangle2D.Float rect = new Rectangle2D.Float();
+	private final RoundRectangle2D.Float roundRect = new RoundRectangle2D.Float();
+	private final Ellipse2D.Float circle = new Ellipse2D.Float();
+
+	/**
+	 * transform and clip of every {@link #save()}
+	 */
+	private final List<AffineTransform> savedTransforms = new ArrayList<AffineTransform>();
+	private final List<Shape> savedClips = new ArrayList<Shape>();
+
+	private Font font = font(14);
+	private int textAlign = ALIGN_LEFT;
+
+	public Graphics2DRenderer(Graphics2D g) {
+		this.g = g;
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		setStrokeWidth(0);
+		g.setFont(font);
+	}
+
+	/**
+	 * draws the graph into a new image with a transparent background
+	 */
+	public static BufferedImage render(HeadlessGraph graph, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			graph.draw(new Graphics2DRenderer(g), width, height);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * renders the graph and writes it as PNG, the stream is not closed
+	 */
+	public static void writePng(HeadlessGraph graph, int width, int height, OutputStream out) throws IOException {
+		if (!ImageIO.write(render(graph, width, height), "png", out)) {
+			throw new IOException("no PNG writer");
+		}
+	}
+
+	static Font font(float size) {
+		return new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(size);
+	}
+
+	static float measureText(Font font, char[] text, int start, int length) {
+		return (float) font.getStringBounds(text, start, start + length, FONT_RENDER_CONTEXT).getWidth();
+	}
+
+	/**
+	 * @return height of the glyph of "a", like the text bounds of android
+	 */
+	static float getTextHeight(Font font) {
+		return (float) font.createGlyphVector(FONT_RENDER_CONTEXT, "a").getVisualBounds().getHeight();
+	}
+
+	@Override
+	public void setColor(int color) {
+		g.setPaint(new Color(color, true));
+	}
+
+	@Override
+	public void setFillGradient(float top, float bottom, int topColor, int bottomColor) {
+		g.setPaint(new GradientPaint(0, top, new Color(topColor, true), 0, bottom, new Color(bottomColor, true)));
+	}
+
+	@Override
+	public void setStrokeWidth(float width) {
+		// 0 is a hairline, like on android
+		g.setStroke(new BasicStroke(width > 0 ? width : 1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_MITER));
+	}
+
+	@Override
+	public void setTextSize(float size) {
+		if (font.getSize2D() != size) {
+			font = font(size);
+			g.setFont(font);
+		}
+	}
+
+	@Override
+	public void setTextAlign(int align) {
+		textAlign = align;
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float stopX, float stopY) {
+		line.setLine(startX, startY, stopX, stopY);
+		g.draw(line);
+	}
+
+	@Override
+	public void drawLines(float[] points, int offset, int count) {
+		Path2D.Float lines = new Path2D.Float(Path2D.WIND_NON_ZERO, count / 2);
+		for (int i = offset; i + 3 < offset + count; i += 4) {
+			lines.moveTo(points[i], points[i+1]);
+			lines.lineTo(points[i+2], points[i+3]);
+		}
+		g.draw(lines);
+	}
+
+	@Override
+	public void fillRect(float left, float top, float right, float bottom) {
+		rect.setRect(left, top, right - left, bottom - top);
+		g.fill(rect);
+	}
+
+	@Override
+	public void fillRoundRect(float left, float top, float right, float bottom, float radius) {
+		roundRect.setRoundRect(left, top, right - left, bottom - top, 2 * radius, 2 * radius);
+		g.fill(roundRect);
+	}
+
+	@Override
+	public void fillCircle(float cx, float cy, float radius) {
+		circle.setFrame(cx - radius, cy - radius, 2 * radius, 2 * radius);
+		g.fill(circle);
+	}
+
+	@Override
+	public void beginPath() {
+		path.reset();
+	}
+
+	@Override
+	public void moveTo(float x, float y) {
+		path.moveTo(x, y);
+	}
+
+	@Override
+	public void lineTo(float x, float y) {
+		path.lineTo(x, y);
+	}
+
+	@Override
+	public void quadTo(float x1, float y1, float x2, float y2) {
+		path.quadTo(x1, y1, x2, y2);
+	}
+
+	@Override
+	public void addRect(float left, float top, float right, float bottom) {
+		path.moveTo(left, top);
+		path.lineTo(right, top);
+		path.lineTo(right, bottom);
+		path.lineTo(left, bottom);
+		path.closePath();
+	}
+
+	@Override
+	public void closePath() {
+		path.closePath();
+	}
+
+	@Override
+	public void strokePath() {
+		g.draw(path);
+	}
+
+	@Override
+	public void fillPath() {
+		g.fill(path);
+	}
+
+	@Override
+	public void drawText(char[] text, int start, int length, float x, float y) {
+		drawText(new String(text, start, length), x, y);
+	}
+
+	@Override
+	public void drawText(String text, float x, float y) {
+		if (textAlign != ALIGN_LEFT) {
+			float width = (float) font.getStringBounds(text, FONT_RENDER_CONTEXT).getWidth();
+			x -= textAlign == ALIGN_RIGHT ? width : width / 2;
+		}
+		g.drawString(text, x, y);
+	}
+
+	@Override
+	public float measureText(char[] text, int start, int length) {
+		return measureText(font, text, start, length);
+	}
+
+	@Override
+	public float getTextHeight() {
+		return getTextHeight(font);
+	}
+
+	@Override
+	public void save() {
+		savedTransforms.add(g.getTransform());
+		savedClips.add(g.getClip());
+	}
+
+	@Override
+	public void translate(float dx, float dy) {
+		g.translate(dx, dy);
+	}
+
+	@Override
+	public void clipRect(float left, float top, float right, float bottom) {
+		g.clip(new Rectangle2D.Float(left, top, right - left, bottom - top));
+	}
+
+	@Override
+	public void restore() {
+		int last = savedTransforms.size() - 1;
+		g.setTransform(savedTransforms.remove(last));
+		g.setClip(savedClips.remove(last));
+	}
+}
@@ -0,0 +1,367 @@
+package com.jjoe64.graphview;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link GraphRenderer} that writes an SVG document. Text is measured with the java2d fonts,
+ * so it works on a headless JVM. a renderer draws one document, create one per thread to
+ * render graphs in parallel.
+ */
+public class SvgRenderer implements GraphRenderer {
+	private final int width;
+	private final int height;
+	private final StringBuilder out = new StringBuilder(4096);
+	private final StringBuilder path = new StringBuilder();
+
+	/**
+	 * number of groups that were opened by translate and clipRect since each {@link #save()},
+	 * the first entry counts those before the first save
+	 */
+	private final List<int[]> openGroups = new ArrayList<int[]>();
+	private int nextId;
+
+	/**
+	 * current color as attribute value, with its opacity, or the url of a gradient
+	 */
+	private String paint = "#000000";
+	private int alpha = 255;
+	private float strokeWidth = 1;
+	private Font font = Graphics2DRenderer.font(14);
+	private int textAlign = ALIGN_LEFT;
+
+	public SvgRenderer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		openGroups.add(new int[1]);
+	}
+
+	/**
+	 * draws the graph into a new SVG document
+	 */
+	public static String render(HeadlessGraph graph, int width, int height) {
+		SvgRenderer renderer = new SvgRenderer(width, height);
+		graph.draw(renderer, width, height);
+		return renderer.toSvg();
+	}
+
+	/**
+	 * renders the graph and writes it as SVG, the writer is not closed
+	 */
+	public static void writeSvg(HeadlessGraph graph, int width, int height, Writer writer) throws IOException {
+		writer.write(render(graph, width, height));
+		writer.flush();
+	}
+
+	/**
+	 * @return the document with everything that was drawn so far
+	 */
+	public String toSvg() {
+		StringBuilder svg = new StringBuilder(out.length() + 256);
+		svg.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+				.append("\" height=\"").append(height)
+				.append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">\n");
+		svg.append(out);
+		for (int i = openGroups.size() - 1; i >= 0; i--) {
+			for (int j = 0; j < openGroups.get(i)[0]; j++) {
+				svg.append("</g>\n");
+			}
+		}
+		svg.append("</svg>\n");
+		return svg.toString();
+	}
+
+	@Override
+	public void setColor(int color) {
+		paint = color(color);
+		alpha = color >>> 24;
+	}
+
+	@Override
+	public void setFillGradient(float top, float bottom, int topColor, int bottomColor) {
+		String id = "g" + nextId++;
+		out.append("<defs><linearGradient id=\"").append(id).append("\" gradientUnits=\"userSpaceOnUse\" x1=\"0\" y1=\"");
+		number(top).append("\" x2=\"0\" y2=\"");
+		number(bottom).append("\">");
+		stop(0, topColor);
+		stop(1, bottomColor);
+		out.append("</linearGradient></defs>\n");
+		paint = "url(#" + id + ")";
+		alpha = 255;
+	}
+
+	private void stop(int offset, int color) {
+		out.append("<stop offset=\"").append(offset).append("\" stop-color=\"").append(color(color)).append('"');
+		if (color >>> 24 != 255) {
+			out.append(" stop-opacity=\"");
+			number((color >>> 24) / 255f).append('"');
+		}
+		out.append("/>");
+	}
+
+	@Override
+	public void setStrokeWidth(float width) {
+		// 0 is a hairline, like on android
+		strokeWidth = width > 0 ? width : 1;
+	}
+
+	@Override
+	public void setTextSize(float size) {
+		if (font.getSize2D() != size) {
+			font = Graphics2DRenderer.font(size);
+		}
+	}
+
+	@Override
+	public void setTextAlign(int align) {
+		textAlign = align;
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float stopX, float stopY) {
+		out.append("<line x1=\"");
+		number(startX).append("\" y1=\"");
+		number(startY).append("\" x2=\"");
+		number(stopX).append("\" y2=\"");
+		number(stopY).append('"');
+		stroke();
+	}
+
+	@Override
+	public void drawLines(float[] points, int offset, int count) {
+		out.append("<path d=\"");
+		for (int i = offset; i + 3 < offset + count; i += 4) {
+			out.append('M');
+			number(points[i]).append(' ');
+			number(points[i+1]).append('L');
+			number(points[i+2]).append(' ');
+			number(points[i+3]);
+		}
+		out.append('"');
+		stroke();
+	}
+
+	@Override
+	public void fillRect(float left, float top, float right, float bottom) {
+		out.append("<rect x=\"");
+		number(left).append("\" y=\"");
+		number(top).append("\" width=\"");
+		number(right - left).append("\" height=\"");
+		number(bottom - top).append('"');
+		fill();
+	}
+
+	@Override
+	public void fillRoundRect(float left, float top, float right, float bottom, float radius) {
+		out.append("<rect x=\"");
+		number(left).append("\" y=\"");
+		number(top).append("\" width=\"");
+		number(right - left).append("\" height=\"");
+		number(bottom - top).append("\" rx=\"");
+		number(radius).append('"');
+		fill();
+	}
+
+	@Override
+	public void fillCircle(float cx, float cy, float radius) {
+		out.append("<circle cx=\"");
+		number(cx).append("\" cy=\"");
+		number(cy).append("\" r=\"");
+		number(radius).append('"');
+		fill();
+	}
+
+	@Override
+	public void beginPath() {
+		path.setLength(0);
+	}
+
+	@Override
+	public void moveTo(float x, float y) {
+		path.append('M');
+		number(path, x).append(' ');
+		number(path, y);
+	}
+
+	@Override
+	public void lineTo(float x, float y) {
+		path.append('L');
+		number(path, x).append(' ');
+		number(path, y);
+	}
+
+	@Override
+	public void quadTo(float x1, float y1, float x2, float y2) {
+		path.append('Q');
+		number(path, x1).append(' ');
+		number(path, y1).append(' ');
+		number(path, x2).append(' ');
+		number(path, y2);
+	}
+
+	@Override
+	public void addRect(float left, float top, float right, float bottom) {
+		moveTo(left, top);
+		path.append('H');
+		number(path, right).append('V');
+		number(path, bottom).append('H');
+		number(path, left).append('Z');
+	}
+
+	@Override
+	public void closePath() {
+		path.append('Z');
+	}
+
+	@Override
+	public void strokePath() {
+		if (path.length() == 0) {
+			return;
+		}
+		out.append("<path d=\"").append(path).append('"');
+		stroke();
+	}
+
+	@Override
+	public void fillPath() {
+		if (path.length() == 0) {
+			return;
+		}
+		out.append("<path d=\"").append(path).append('"');
+		fill();
+	}
+
+	@Override
+	public void drawText(char[] text, int start, int length, float x, float y) {
+		out.append("<text x=\"");
+		number(x).append("\" y=\"");
+		number(y).append("\" font-family=\"sans-serif\" font-size=\"");
+		number(font.getSize2D()).append('"');
+		if (textAlign != ALIGN_LEFT) {
+			out.append(" text-anchor=\"").append(textAlign == ALIGN_RIGHT ? "end" : "middle").append('"');
+		}
+		out.append(" fill=\"").append(paint).append('"');
+		opacity("fill-opacity");
+		out.append('>');
+		for (int i = start; i < start + length; i++) {
+			char c = text[i];
+			switch (c) {
+			case '<':
+				out.append("&lt;");
+				break;
+			case '>':
+				out.append("&gt;");
+				break;
+			case '&':
+				out.append("&amp;");
+				break;
+			default:
+				out.append(c);
+			}
+		}
+		out.append("</text>\n");
+	}
+
+	@Override
+	public void drawText(String text, float x, float y) {
+		drawText(text.toCharArray(), 0, text.length(), x, y);
+	}
+
+	@Override
+	public float measureText(char[] text, int start, int length) {
+		return Graphics2DRenderer.measureText(font, text, start, length);
+	}
+
+	@Override
+	public float getTextHeight() {
+		return Graphics2DRenderer.getTextHeight(font);
+	}
+
+	@Override
+	public void save() {
+		openGroups.add(new int[1]);
+	}
+
+	@Override
+	public void translate(float dx, float dy) {
+		out.append("<g transform=\"translate(");
+		number(dx).append(' ');
+		number(dy).append(")\">\n");
+		openGroups.get(openGroups.size() - 1)[0]++;
+	}
+
+	@Override
+	public void clipRect(float left, float top, float right, float bottom) {
+		String id = "c" + nextId++;
+		out.append("<clipPath id=\"").append(id).append("\"><rect x=\"");
+		number(left).append("\" y=\"");
+		number(top).append("\" width=\"");
+		number(right - left).append("\" height=\"");
+		number(bottom - top).append("\"/></clipPath>\n");
+		out.append("<g clip-path=\"url(#").append(id).append(")\">\n");
+		openGroups.get(openGroups.size() - 1)[0]++;
+	}
+
+	@Override
+	public void restore() {
+		int groups = openGroups.remove(openGroups.size() - 1)[0];
+		for (int i = 0; i < groups; i++) {
+			out.append("</g>\n");
+		}
+	}
+
+	private void stroke() {
+		out.append(" fill=\"none\" stroke=\"").append(paint).append("\" stroke-width=\"");
+		number(strokeWidth).append("\" stroke-linecap=\"round\"");
+		opacity("stroke-opacity");
+		out.append("/>\n");
+	}
+
+	private void fill() {
+		out.append(" fill=\"").append(paint).append('"');
+		opacity("fill-opacity");
+		out.append("/>\n");
+	}
+
+	private void opacity(String attribute) {
+		if (alpha != 255) {
+			out.append(' ').append(attribute).append("=\"");
+			number(alpha / 255f).append('"');
+		}
+	}
+
+	private static String color(int color) {
+		String rgb = Integer.toHexString(color & 0xFFFFFF);
+		return "#000000".substring(0, 7 - rgb.length()) + rgb;
+	}
+
+	private StringBuilder number(float value) {
+		return number(out, value);
+	}
+
+	/**
+	 * appends the value with at most two fraction digits, without exponent
+	 */
+	private static StringBuilder number(StringBuilder sb, float value) {
+		long hundredths = Math.round(value * 100d);
+		if (hundredths < 0) {
+			sb.append('-');
+			hundredths = -hundredths;
+		}
+		sb.append(hundredths / 100);
+		int fraction = (int) (hundredths % 100);
+		if (fraction != 0) {
+			sb.append('.');
+			if (fraction < 10) {
+				sb.append('0').append(fraction);
+			} else {
+				sb.append(fraction % 10 == 0 ? fraction / 10 : fraction);
+			}
+		}
+		return sb;
+	}
+}
@@ -0,0 +1,321 @@
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * one producer thread per series appends through the public API of {@link GraphViewSeries},
+ * while readers check every snapshot they get: its points, the range min/max and the level of detail,
+ * against references that are computed from the points that were read.
+ * point i of a series is (i, y(i)), so every y value can be checked against its x value.
+ * a read of a ring buffer may only fail if {@link SeriesSnapshot#isOverwritten()} says so afterwards.
+ */
+public class GraphViewSeriesStressTest {
+	private static final int READERS = 2;
+	private static final int POINTS = 200000;
+	private static final int PACKET = 64;
+	private static final int RING_CAPACITY = 50000;
+
+	/**
+	 * a series and its expected capacity
+	 */
+	private static class Target {
+		final String name;
+		final GraphViewSeries series;
+		final int maxDataPoints;
+
+		Target(String name, GraphViewSeries series, int maxDataPoints) {
+			this.name = name;
+			this.series = series;
+			this.maxDataPoints = maxDataPoints;
+		}
+	}
+
+	/**
+	 * not monotonic, with repeated values, so the min/max and the level of detail have something to find
+	 */
+	private static double y(double x) {
+		return (long) x * 7919 % 1009 - 500;
+	}
+
+	@Test(timeout = 120000)
+	public void concurrentAppendsAndSnapshotReads() throws InterruptedException {
+		final List<Target> targets = new ArrayList<Target>();
+		targets.add(new Target("columns", new GraphViewSeries(new double[0], new double[0], "columns", null), 0));
+		GraphViewSeries levelOfDetail = new GraphViewSeries(new double[0], new double[0], "level of detail", null);
+		levelOfDetail.setLevelOfDetail(true);
+		targets.add(new Target("level of detail", levelOfDetail, 0));
+		targets.add(new Target("ring buffer", new GraphViewSeries("ring buffer", null, RING_CAPACITY), RING_CAPACITY));
+		GraphViewSeries ringLevelOfDetail = new GraphViewSeries("ring buffer with level of detail", null, RING_CAPACITY);
+		ringLevelOfDetail.setLevelOfDetail(true);
+		targets.add(new Target("ring buffer with level of detail", ringLevelOfDetail, RING_CAPACITY));
+		GraphViewSeries compressed = new GraphViewSeries(new double[0], new double[0], "compressed", null);
+		compressed.setCompressed(true);
+		targets.add(new Target("compressed", compressed, 0));
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		List<Thread> writers = new ArrayList<Thread>();
+		for (int w=0; w<targets.size(); w++) {
+			final Target target = targets.get(w);
+			final Random random = new Random(w);
+			writers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						produce(target.series, random);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			}, "writer " + target.name));
+		}
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int r=0; r<READERS; r++) {
+			final Random random = new Random(100 + r);
+			readers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						int[] lastSize = new int[targets.size()];
+						while (writing.get() && failure.get() == null) {
+							for (int t=0; t<targets.size(); t++) {
+								lastSize[t] = check(targets.get(t), lastSize[t], random);
+							}
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			}, "reader " + r));
+		}
+
+		for (Thread t : readers) {
+			t.start();
+		}
+		for (Thread t : writers) {
+			t.start();
+		}
+		for (Thread t : writers) {
+			t.join();
+		}
+		writing.set(false);
+		for (Thread t : readers) {
+			t.join();
+		}
+		if (failure.get() instanceof AssertionError) {
+			throw (AssertionError) failure.get();
+		} else if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+
+		// nothing was lost, and the final snapshots are complete and correct
+		Random random = new Random();
+		for (Target target : targets) {
+			SeriesSnapshot snapshot = target.series.snapshot();
+			int expected = target.maxDataPoints > 0 ? target.maxDataPoints : POINTS;
+			assertEquals(target.name, expected, snapshot.size());
+			assertEquals(target.name, POINTS - 1, snapshot.getX(snapshot.size() - 1), 0);
+			for (int i=0; i<10; i++) {
+				assertNull(target.name, checkSnapshot(target, snapshot, random));
+			}
+			assertFalse(target.name, snapshot.isOverwritten());
+		}
+	}
+
+	/**
+	 * appends the points with single appends and packets of random length, like a sensor
+	 */
+	private static void produce(GraphViewSeries series, Random random) {
+		double[] valuesX = new double[PACKET];
+		double[] valuesY = new double[PACKET];
+		int next = 0;
+		while (next < POINTS) {
+			int length = Math.min(1 + random.nextInt(PACKET), POINTS - next);
+			if (length == 1 || random.nextBoolean()) {
+				series.appendData(next, y(next), false);
+				next++;
+			} else {
+				for (int i=0; i<length; i++, next++) {
+					valuesX[i] = next;
+					valuesY[i] = y(next);
+				}
+				series.appendData(valuesX, valuesY, 0, length, false);
+			}
+		}
+	}
+
+	/**
+	 * checks the current snapshot of a series
+	 * @param lastSize size of the snapshot of the previous check
+	 * @return size of this snapshot
+	 */
+	private static int check(Target target, int lastSize, Random random) {
+		SeriesSnapshot snapshot = target.series.snapshot();
+		int size = snapshot.size();
+		if (target.maxDataPoints > 0) {
+			assertTrue(target.name + ": size " + size, size <= target.maxDataPoints);
+		}
+		assertTrue(target.name + ": size went back from " + lastSize + " to " + size, size >= lastSize);
+		if (size == 0) {
+			return size;
+		}
+
+		String error = checkSnapshot(target, snapshot, random);
+		// checked after reading: the ring buffer may have reused the slots in the meantime
+		if (error != null && !snapshot.isOverwritten()) {
+			throw new AssertionError(target.name + ": " + error);
+		}
+		return size;
+	}
+
+	/**
+	 * @return what is wrong with the snapshot, null if it is ok
+	 */
+	private static String checkSnapshot(Target target, SeriesSnapshot snapshot, Random random) {
+		// the points are consecutive, so they are sorted and none is missing or torn
+		int size = snapshot.size();
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		double firstX = snapshot.getX(0);
+		for (int i=0; i<size; i++) {
+			valuesX[i] = snapshot.getX(i);
+			valuesY[i] = snapshot.getY(i);
+			if (valuesX[i] != firstX + i || valuesY[i] != y(valuesX[i])) {
+				return "point " + i + " of " + size + " is (" + valuesX[i] + ", " + valuesY[i] + "), first x " + firstX;
+			}
+		}
+		if (snapshot.size() != size) {
+			return "size changed from " + size + " to " + snapshot.size();
+		}
+
+		// min/max of a random range
+		int from = random.nextInt(size);
+		int to = from + 1 + random.nextInt(size - from);
+		String error = checkMinMax("range", valuesY, from, to, snapshot.getMinY(from, to), snapshot.getMaxY(from, to));
+		if (error != null) {
+			return error;
+		}
+
+		// a random viewport
+		SeriesSnapshot.SubSet subSet = new SeriesSnapshot.SubSet();
+		subSet.update(snapshot, valuesX[from], valuesX[to - 1]);
+		int offset = subSet.getFromIndex();
+		if (offset > from || subSet.getToIndex() < to) {
+			return "viewport " + from + " to " + to + " is " + offset + " to " + subSet.getToIndex();
+		}
+		for (int i=0; i<subSet.size(); i++) {
+			if (subSet.getX(i) != valuesX[offset + i] || subSet.getY(i) != valuesY[offset + i]) {
+				return "point " + i + " of viewport " + offset + " to " + subSet.getToIndex();
+			}
+		}
+		error = checkMinMax("viewport", valuesY, offset, subSet.getToIndex(), subSet.getMinY(), subSet.getMaxY());
+		if (error != null) {
+			return error;
+		}
+
+		if (snapshot.isLevelOfDetail()) {
+			return checkLevelOfDetail(target, snapshot, valuesX, valuesY, random);
+		}
+		return null;
+	}
+
+	private static String checkMinMax(String what, double[] valuesY, int from, int to, double min, double max) {
+		double expectedMin = Double.POSITIVE_INFINITY;
+		double expectedMax = Double.NEGATIVE_INFINITY;
+		for (int i=from; i<to; i++) {
+			expectedMin = Math.min(expectedMin, valuesY[i]);
+			expectedMax = Math.max(expectedMax, valuesY[i]);
+		}
+		if (min != expectedMin || max != expectedMax) {
+			return "min/max of " + what + " " + from + " to " + to + " is " + min + ", " + max + " instead of " + expectedMin + ", " + expectedMax;
+		}
+		return null;
+	}
+
+	/**
+	 * compares the level of detail of a random range with the one of a pyramid that is built from the
+	 * points that were read, at the same positions as in the columns of the series
+	 */
+	private static String checkLevelOfDetail(Target target, SeriesSnapshot snapshot, double[] valuesX, double[] valuesY, Random random) {
+		int size = valuesX.length;
+		int level = 1 + random.nextInt(12);
+		if (size < 2 << level) {
+			return null;
+		}
+		int from = random.nextInt(size - (2 << level));
+		int to = from + (2 << level) + random.nextInt(size - from - (2 << level) + 1);
+		float pixels = (to - from) / (float) (1 << level);
+
+		String range = "level of detail of " + from + " to " + to + " at level " + level;
+		GraphViewDataBuffer out = new GraphViewDataBuffer();
+		boolean summarized = snapshot.getLevelOfDetail(from, to, pixels, out);
+		GraphViewDataBuffer expected = new GraphViewDataBuffer();
+		if (snapshot.getBlocks() != null) {
+			CompressedColumns reference = new CompressedColumns();
+			for (int i=0; i<size; i++) {
+				reference.append(valuesX[i], valuesY[i]);
+			}
+			// the blocks are only summarized if the range has several blocks per pixel
+			if (reference.blocks().getLevelOfDetail(from, to, pixels, expected) != summarized) {
+				return range + ": summarized " + summarized;
+			}
+			if (!summarized) {
+				return null;
+			}
+		} else {
+			// the point with x value i was written to slot i, modulo the storage of the ring buffer
+			int capacity = target.maxDataPoints > 0 ? 2*target.maxDataPoints : size;
+			double[] columnX = new double[capacity];
+			double[] columnY = new double[capacity];
+			for (int i=0; i<size; i++) {
+				int slot = (int) ((long) valuesX[i] % capacity);
+				columnX[slot] = valuesX[i];
+				columnY[slot] = valuesY[i];
+			}
+			if (!summarized) {
+				return range + ": not summarized";
+			}
+			LevelOfDetail reference = new LevelOfDetail();
+			reference.rebuild(columnX, columnY, capacity);
+			int physicalFrom = (int) ((long) valuesX[from] % capacity);
+			int physicalTo = physicalFrom + to - from;
+			if (physicalTo <= capacity) {
+				reference.emit(level, physicalFrom, physicalTo, expected);
+			} else {
+				reference.emit(level, physicalFrom, capacity, expected);
+				reference.emit(level, 0, physicalTo - capacity, expected);
+			}
+		}
+
+		if (out.size() != expected.size()) {
+			return range + ": " + out.size() + " points instead of " + expected.size();
+		}
+		for (int i=0; i<out.size(); i++) {
+			if (out.getX(i) != expected.getX(i) || out.getY(i) != expected.getY(i)) {
+				return range + ": point " + i + " is (" + out.getX(i) + ", " + out.getY(i) + ") instead of (" + expected.getX(i) + ", " + expected.getY(i) + ")";
+			}
+		}
+		// the reference itself: first and last point of the range, and all of its peaks
+		if (out.getX(0) != valuesX[from] || out.getX(out.size() - 1) != valuesX[to - 1]) {
+			return range + ": starts at " + out.getX(0) + " and ends at " + out.getX(out.size() - 1);
+		}
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i=0; i<out.size(); i++) {
+			min = Math.min(min, out.getY(i));
+			max = Math.max(max, out.getY(i));
+		}
+		return checkMinMax(range, valuesY, from, to, min, max);
+	}
+}
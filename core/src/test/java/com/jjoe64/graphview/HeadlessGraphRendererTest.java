@@ -0,0 +1,161 @@
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * renders headless graphs as PNG and SVG on a plain JVM. The same graph objects are drawn on
+ * several threads at the same time, every image has to be identical to the one drawn alone.
+ */
+public class HeadlessGraphRendererTest {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 400;
+	private static final int THREADS = 8;
+	private static final int RENDERS = 12;
+
+	private static HeadlessGraph lineGraph() {
+		double[] x = new double[100000];
+		double[] y = new double[x.length];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i;
+			y[i] = Math.sin(i / 1000d) * 100 + i % 37;
+		}
+		GraphViewSeries dense = new GraphViewSeries(x, y, "dense", null);
+		dense.setLevelOfDetail(true);
+		GraphViewDataBuffer sparse = new GraphViewDataBuffer();
+		for (int i = 0; i < 100000; i += 2500) {
+			sparse.add(i, (i / 2500) % 5 * 30 - 60);
+		}
+
+		HeadlessLineGraph graph = new HeadlessLineGraph();
+		graph.addSeries(dense.snapshot(), 0xFF0099CC, 3, "dense <& sin>");
+		graph.addSeries(sparse, 0xFFCC0000, 2, "sparse");
+		graph.setTitle("line");
+		graph.setViewPort(10000, 60000);
+		graph.setDrawBackground(true);
+		graph.setBackgroundFillGradient(0x800099CC, 0x000099CC);
+		graph.setSeriesPoints(HeadlessLineGraph.POINTS_TRIANGLE, 4);
+		graph.setMaxSeriesPointDensity(0.5f);
+		graph.setShowLegend(true);
+		graph.setLegendAlign(HeadlessGraph.LEGEND_TOP);
+		return graph;
+	}
+
+	private static HeadlessGraph barGraph() {
+		double[] x = new double[2000];
+		double[] y = new double[2000];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i;
+			y[i] = i % 100;
+		}
+		HeadlessBarGraph graph = new HeadlessBarGraph();
+		graph.addSeries(new GraphViewSeries(x, y, "bars", null).snapshot(), 0xFF669900, 1, "bars", new PrimitiveValueDependentColor() {
+			@Override
+			public int get(double valueX, double valueY) {
+				return valueY > 50 ? 0xFFFF8800 : 0xFF669900;
+			}
+		});
+		graph.setBarAggregation(HeadlessBarGraph.AGGREGATION_MAX);
+		graph.setBarWidth(1);
+		graph.setManualYAxisBounds(0, 120);
+		graph.setVerticalLabelFormatter(new LabelFormatter() {
+			@Override
+			public String formatLabel(double value) {
+				return (int) value + " %";
+			}
+		});
+		return graph;
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+
+	@Test
+	public void writesPngAndSvg() throws Exception {
+		HeadlessGraph graph = lineGraph();
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		Graphics2DRenderer.writePng(graph, WIDTH, HEIGHT, png);
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+		assertNotNull(image);
+		assertEquals(WIDTH, image.getWidth());
+		assertEquals(HEIGHT, image.getHeight());
+		int opaque = 0;
+		for (int argb : pixels(image)) {
+			if (argb >>> 24 == 0xFF) {
+				opaque++;
+			}
+		}
+		assertTrue("nothing was drawn", opaque > 1000);
+
+		String svg = SvgRenderer.render(graph, WIDTH, HEIGHT);
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new InputSource(new StringReader(svg)));
+		assertEquals("svg", document.getDocumentElement().getNodeName());
+		assertTrue(svg.contains(">line</text>"));
+		assertTrue(svg.contains(">dense &lt;&amp; sin&gt;</text>"));
+		assertTrue(svg.contains("<linearGradient"));
+		assertTrue(svg.contains("clip-path"));
+	}
+
+	@Test(timeout = 120000)
+	public void parallelRenderingMatchesSequential() throws Exception {
+		final HeadlessGraph[] graphs = {lineGraph(), barGraph()};
+		final int[][] expectedPixels = new int[graphs.length][];
+		final String[] expectedSvg = new String[graphs.length];
+		for (int i = 0; i < graphs.length; i++) {
+			expectedPixels[i] = pixels(Graphics2DRenderer.render(graphs[i], WIDTH, HEIGHT));
+			expectedSvg[i] = SvgRenderer.render(graphs[i], WIDTH, HEIGHT);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < THREADS; t++) {
+				final int thread = t;
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						for (int r = 0; r < RENDERS; r++) {
+							int i = (thread + r) % graphs.length;
+							if (r % 2 == 0) {
+								assertArrayEquals("png of graph " + i, expectedPixels[i], pixels(Graphics2DRenderer.render(graphs[i], WIDTH, HEIGHT)));
+							} else {
+								assertEquals("svg of graph " + i, expectedSvg[i], SvgRenderer.render(graphs[i], WIDTH, HEIGHT));
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				// rethrows the failures of the threads
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
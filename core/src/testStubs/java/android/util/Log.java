@@ -0,0 +1,12 @@
+package android.util;
+
+/**
+ * stand-in for the android log, PagedSeriesData writes warnings to it
+ */
+public final class Log {
+	public static int w(String tag, String msg, Throwable tr) {
+		System.err.println(tag + ": " + msg);
+		tr.printStackTrace();
+		return 0;
+	}
+}
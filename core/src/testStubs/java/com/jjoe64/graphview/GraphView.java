@@ -0,0 +1,22 @@
+package com.jjoe64.graphview;
+
+/**
+ * stand-in for the view, with the members that GraphViewSeries uses: its data class and the
+ * methods that redraw it after a change of the data
+ */
+public class GraphView {
+	static public class GraphViewData {
+		public final double valueX;
+		public final double valueY;
+		public GraphViewData(double valueX, double valueY) {
+			this.valueX = valueX;
+			this.valueY = valueY;
+		}
+	}
+
+	public void redrawAll() {
+	}
+
+	public void scrollToEnd() {
+	}
+}
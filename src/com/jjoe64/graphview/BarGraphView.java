@@ -1,11 +1,11 @@
 package com.jjoe64.graphview;
 
-import java.util.Arrays;
-
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.util.AttributeSet;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
 
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
 import com.nineoldandroids.animation.ValueAnimator;
@@ -17,13 +17,47 @@ import com.nineoldandroids.animation.ValueAnimator.AnimatorUpdateListener;
  */
 public class BarGraphView extends GraphView {
 
-	private float scaleY = 1;
+	/**
+	 * how bars are merged if there are more bars than pixels, see {@link BarGraphView#setBarAggregation(BarAggregation)}.
+	 * in the order of the AGGREGATION constants of {@link HeadlessBarGraph}
+	 */
+	public enum BarAggregation {
+		MAX, SUM, MEAN
+	}
+
+	/**
+	 * merged bars of a series and what they were computed for
+	 */
+	static final private class BarBins {
+		SeriesSnapshot snapshot;
+		int fromIndex;
+		int toIndex;
+		int bins;
+		BarAggregation aggregation;
+		final GraphViewDataBuffer data = new GraphViewDataBuffer();
+	}
+
+	private volatile float scaleY = 1;
 	private float barWidth;
 	private float maxBarWidth = Integer.MAX_VALUE;
 
+	/**
+	 * bar j of a series starts this many ms after bar j-1, if the bars are animated separately
+	 */
+	private static final long CHILD_START_DELAY = 50;
+
 	private int index;
-	private float[][] yScales;
+	private volatile float[][] yScales;
 	private boolean animateChildrenSeparately;
+	private ValueAnimator childrenAnimation;
+
+	private BarAggregation barAggregation;
+	private BarBins[] barBins = new BarBins[0];
+
+	/**
+	 * number of bars per series in the last frame
+	 */
+	private int[] drawnBars = new int[0];
 
 	public BarGraphView(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -47,50 +81,111 @@ public class BarGraphView extends GraphView {
 
 	@Override
 	protected void drawSeries(Canvas canvas, float border, float horstart, double minY, double minX, double diffX, float graphheight, float graphwidth, double diffY) {
+		if (drawnBars.length != graphSeries.size()) {
+			drawnBars = new int[graphSeries.size()];
+		}
 		for (int i = 0; i<graphSeries.size(); i++) {
+			long start = beginSeriesMetrics();
 			index = i;
-			drawDataSeries(canvas, _values(i), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, graphSeries.get(i).getStyle());
+			GraphViewDataSet viewport = _values(i);
+			GraphViewDataSet values = aggregate(i, viewport, graphwidth);
+			drawnBars[i] = values.size();
+			drawDataSeries(canvas, values, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, graphSeries.get(i).getStyle());
+			endSeriesMetrics(i, start, viewport.size(), values.size());
 		}
 	}
 
-	@Override
-	public void drawDataSeries(Canvas canvas, GraphViewData[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+	/**
+	 * merges adjacent bars into bins of about one pixel, if aggregation is enabled and
+	 * there are more bars than pixels. The bins are cached until the data or the viewport changes.
+	 * @param idxSeries
+	 * @param values visible data of the series
+	 * @param graphwidth
+	 * @return the bars that have to be drawn
+	 */
+	protected GraphViewDataSet aggregate(int idxSeries, GraphViewDataSet values, float graphwidth) {
+		BarAggregation aggregation = barAggregation;
+		int bins = (int) graphwidth;
+		int size = values.size();
+		if (aggregation == null || bins < 1 || size <= bins) {
+			return values;
+		}
 
-		//float colwidth = (graphwidth - (2 * border)) / (values.length);
-		// float colwidth = (graphwidth - (0 * border)) / (values.length - 2);
-		float colwidth = Math.min((graphwidth - (0 * border)) / (values.length), maxBarWidth);
+		int fromIndex = 0;
+		int toIndex = size;
+		if (values instanceof SeriesSnapshot.SubSet) {
+			fromIndex = ((SeriesSnapshot.SubSet) values).getFromIndex();
+			toIndex = ((SeriesSnapshot.SubSet) values).getToIndex();
+		}
+		if (barBins.length != graphSeries.size()) {
+			barBins = new BarBins[graphSeries.size()];
+		}
+		BarBins b = barBins[idxSeries];
+		if (b == null) {
+			b = new BarBins();
+			barBins[idxSeries] = b;
+		}
+		SeriesSnapshot snapshot = snapshot(idxSeries);
+		if (b.snapshot == snapshot && b.fromIndex == fromIndex && b.toIndex == toIndex
+				&& b.bins == bins && b.aggregation == aggregation) {
+			// still valid
+			return b.data;
+		}
+		b.snapshot = snapshot;
+		b.fromIndex = fromIndex;
+		b.toIndex = toIndex;
+		b.bins = bins;
+		b.aggregation = aggregation;
 
-		float w = barWidth > 0 ? barWidth : colwidth - 1;
+		HeadlessBarGraph.aggregate(values, bins, aggregation.ordinal() + 1, b.data);
+		return b.data;
+	}
 
-		paint.setStrokeWidth(style.thickness);
-		paint.setColor(style.color);
+	/**
+	 * merges adjacent bars into bins of about one pixel width if there are more bars than pixels,
+	 * instead of drawing sub-pixel bars. Animations and value dependent colors apply to the merged bars.
+	 * @param barAggregation how the y values of a bin are combined, null (default) to draw every bar
+	 */
+	public void setBarAggregation(BarAggregation barAggregation) {
+		this.barAggregation = barAggregation;
+		redrawAll();
+	}
 
-		// draw data
-		for (int i = 0; i < values.length; i++) {
-			float valY = (float) (values[i].valueY - minY);
-			float ratY = (float) (valY / diffY);
+	public BarAggregation getBarAggregation() {
+		return barAggregation;
+	}
 
-			// float y = graphheight * ratY * scaleY;
-			float y = graphheight * ratY * yScales[index][i];
+	@Override
+	public void drawDataSeries(Canvas canvas, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+		// local copies, the animation may replace the array
+		float[][] yScales = this.yScales;
+		float[] scales = animateChildrenSeparately && yScales != null && index < yScales.length ? yScales[index] : null;
 
-			// hook for value dependent color
-			if (style.getValueDependentColor() != null) {
-				paint.setColor(style.getValueDependentColor().get(values[i]));
-			}
+		// bars are collected in one path per color, drawn with one call per color
+		countDrawCalls(painter.drawBars(getRenderer(canvas), values, graphwidth, graphheight, border, minY, diffY, horstart,
+				barWidth, maxBarWidth, style.color, primitiveValueDependentColor(style), scaleY, scales));
+	}
 
-			canvas.drawRect((i * colwidth) + horstart + colwidth/2 - w/2 , (border - y) + graphheight, ((i * colwidth) + horstart) + colwidth/2 + w - w/2, graphheight + border, paint);
-			// canvas.drawRect((i * colwidth) + horstart, (border - y) + graphheight, ((i * colwidth) + horstart) + (colwidth - 1), graphheight + border - 1, paint);
+	/**
+	 * the bars of the headless graph are drawn at their full height
+	 */
+	@Override
+	protected HeadlessGraph createHeadlessGraph() {
+		if (hasCustomDrawing(BarGraphView.class)) {
+			return null;
 		}
+		HeadlessBarGraph graph = new HeadlessBarGraph();
+		copyTo(graph);
+		graph.setBarWidth(barWidth);
+		graph.setMaxBarWidth(maxBarWidth);
+		BarAggregation aggregation = barAggregation;
+		graph.setBarAggregation(aggregation != null ? aggregation.ordinal() + 1 : HeadlessBarGraph.AGGREGATION_NONE);
+		return graph;
 	}
 
 	@Override
 	protected void onAnimationUpdate(ValueAnimator anim) {
 		scaleY = (Float) anim.getAnimatedValue();
-		if (!animateChildrenSeparately) {
-			for (float[] y : yScales) {
-				Arrays.fill(y, scaleY);
-			}
-		}
 	}
 
 	public void setBarWidth(float barWidth) {
@@ -101,48 +196,74 @@ public class BarGraphView extends GraphView {
 		this.maxBarWidth = maxBarWidth;
 	}
 
-	@Override
-	public void addSeries(GraphViewSeries series) {
-		super.addSeries(series);
-		yScales = new float[graphSeries.size()][];
-		for (int i = 0; i < graphSeries.size(); i++) {
-			yScales[i] = new float[graphSeries.get(i).values.length];
-			Arrays.fill(yScales[i], 1);
-		}
-	}
-
 	@Override
 	public void startAnimation() {
 		if (animateChildrenSeparately) {
-			ValueAnimator anim = super.createAnimation();
-			for (int i = 0; i < graphSeries.size(); i++) {
-				for (int j = 0; j < graphSeries.get(i).values.length; j++) {
-
-					final int x = i;
-					final int y = j;
-
-					final ValueAnimator a = anim.clone();
-					yScales[x][y] = 0;
-					a.addUpdateListener(new AnimatorUpdateListener() {
-						@Override
-						public void onAnimationUpdate(ValueAnimator arg0) {
-							try {
-								yScales[x][y] = (Float) a.getAnimatedValue();
-								redrawAll();
-							} catch (Exception e) {
-
-							}
-						}
-					});
-					a.setStartDelay(j*50);
-					a.start();
-				}
-			}
+			startChildrenAnimation();
 		} else {
 			super.startAnimation();
 		}
 	}
 
+	/**
+	 * animates all bars with one animator. Bar j starts j*CHILD_START_DELAY ms after the first one,
+	 * its progress is computed from the elapsed time of the whole timeline.
+	 * only the bars that are currently moving are updated, and there is one redraw per frame.
+	 */
+	private void startChildrenAnimation() {
+		if (childrenAnimation != null) {
+			childrenAnimation.cancel();
+		}
+
+		int maxBars = 0;
+		final float[][] scales = new float[graphSeries.size()][];
+		for (int i = 0; i < graphSeries.size(); i++) {
+			// the merged bars if the series was already drawn
+			int bars = i < drawnBars.length && drawnBars[i] > 0 ? drawnBars[i] : graphSeries.get(i).size();
+			scales[i] = new float[bars];
+			maxBars = Math.max(maxBars, bars);
+		}
+		yScales = scales;
+
+		final Interpolator interpolator = getInterpolator();
+		final long duration = Math.max(1, getAnimationDuration());
+		final long total = duration + Math.max(0, maxBars-1) * CHILD_START_DELAY;
+		final float end = interpolator.getInterpolation(1f);
+
+		childrenAnimation = ValueAnimator.ofFloat(0f, 1f);
+		childrenAnimation.setDuration(total);
+		childrenAnimation.setInterpolator(new LinearInterpolator());
+		childrenAnimation.addUpdateListener(new AnimatorUpdateListener() {
+			/**
+			 * bars before this index have finished
+			 */
+			private int finished;
+
+			@Override
+			public void onAnimationUpdate(ValueAnimator animation) {
+				float elapsed = animation.getAnimatedFraction() * total;
+				int first = Math.max(finished, (int) Math.floor((elapsed - duration) / CHILD_START_DELAY) + 1);
+				int last = (int) (elapsed / CHILD_START_DELAY);
+				if (animation.getAnimatedFraction() >= 1f) {
+					first = last = Integer.MAX_VALUE - 1;
+				}
+				for (float[] bars : scales) {
+					int n = bars.length;
+					for (int j = finished; j < Math.min(first, n); j++) {
+						bars[j] = end;
+					}
+					for (int j = first; j <= Math.min(last, n-1); j++) {
+						float progress = (elapsed - j * CHILD_START_DELAY) / duration;
+						bars[j] = interpolator.getInterpolation(Math.min(1f, progress));
+					}
+				}
+				finished = first;
+				scheduleRedraw();
+			}
+		});
+		childrenAnimation.start();
+	}
+
 	public void setAnimateChildrenSeparately(boolean animateChildrenSeparately) {
 		this.animateChildrenSeparately = animateChildrenSeparately;
 	}
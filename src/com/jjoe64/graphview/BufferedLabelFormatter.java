@@ -0,0 +1,125 @@
+package com.jjoe64.graphview;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * label formatter that writes into a char buffer instead of creating a String.
+ * GraphView draws labels of these formatters with Canvas.drawText(char[], ...),
+ * so generating labels while scrolling creates no garbage.
+ * implementations must be thread-safe, with background rendering labels are formatted on the render thread.
+ */
+public interface BufferedLabelFormatter extends LabelFormatter {
+	/**
+	 * the maximal number of chars that formatLabel writes
+	 */
+	public static final int MAX_LENGTH = 40;
+
+	/**
+	 * @param value
+	 * @param buffer the label is written to it, at least {@link #MAX_LENGTH} chars from offset
+	 * @param offset
+	 * @return number of chars written
+	 */
+	public int formatLabel(double value, char[] buffer, int offset);
+
+	/**
+	 * decimal number with a maximal number of fraction digits and grouping of the integer digits,
+	 * like NumberFormat.getNumberInstance() of the default locale.
+	 * trailing zeros of the fraction are dropped, rounding is half even.
+	 */
+	public static class DecimalLabelFormatter implements BufferedLabelFormatter {
+		private final int fractionDigits;
+		private final char groupingSeparator;
+		private final char decimalSeparator;
+		private final char minusSign;
+
+		/**
+		 * @param fractionDigits 0 to 9
+		 */
+		public DecimalLabelFormatter(int fractionDigits) {
+			this(fractionDigits, true);
+		}
+
+		/**
+		 * @param fractionDigits 0 to 9
+		 * @param grouping false to write the integer digits without grouping separators
+		 */
+		public DecimalLabelFormatter(int fractionDigits, boolean grouping) {
+			if (fractionDigits < 0 || fractionDigits >= LabelDigits.POWERS_OF_TEN.length) {
+				throw new IllegalArgumentException("fractionDigits must be between 0 and " + (LabelDigits.POWERS_OF_TEN.length-1));
+			}
+			DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.getDefault());
+			this.fractionDigits = fractionDigits;
+			this.groupingSeparator = grouping ? symbols.getGroupingSeparator() : 0;
+			this.decimalSeparator = symbols.getDecimalSeparator();
+			this.minusSign = symbols.getMinusSign();
+		}
+
+		public int getFractionDigits() {
+			return fractionDigits;
+		}
+
+		@Override
+		public int formatLabel(double value, char[] buffer, int offset) {
+			return LabelDigits.writeDecimal(value, fractionDigits, groupingSeparator, decimalSeparator, minusSign, buffer, offset);
+		}
+
+		@Override
+		public String formatLabel(double value) {
+			char[] buffer = new char[MAX_LENGTH];
+			return new String(buffer, 0, formatLabel(value, buffer, 0));
+		}
+	}
+
+	/**
+	 * large numbers with SI prefix: 1.2k, 34M, 5G, 1T, 2P, 3E.
+	 * values below 1000 are written as decimal number.
+	 */
+	public static class SiLabelFormatter implements BufferedLabelFormatter {
+		private static final char[] PREFIXES = {'k', 'M', 'G', 'T', 'P', 'E'};
+
+		private final DecimalLabelFormatter decimal;
+		private final int fractionDigits;
+
+		public SiLabelFormatter() {
+			this(1);
+		}
+
+		/**
+		 * @param fractionDigits maximal number of fraction digits, 0 to 9
+		 */
+		public SiLabelFormatter(int fractionDigits) {
+			this.decimal = new DecimalLabelFormatter(fractionDigits, false);
+			this.fractionDigits = fractionDigits;
+		}
+
+		@Override
+		public int formatLabel(double value, char[] buffer, int offset) {
+			double abs = Math.abs(value);
+			int prefix = -1;
+			while (abs >= 1000 && prefix < PREFIXES.length-1) {
+				abs /= 1000;
+				prefix++;
+			}
+			// 999.96k would be rounded to 1000k
+			long pow = LabelDigits.POWERS_OF_TEN[fractionDigits];
+			if (prefix < PREFIXES.length-1 && Math.rint(abs * pow) >= 1000 * pow) {
+				abs /= 1000;
+				prefix++;
+			}
+			if (prefix == -1) {
+				return decimal.formatLabel(value, buffer, offset);
+			}
+			int length = decimal.formatLabel(value < 0 ? -abs : abs, buffer, offset);
+			buffer[offset + length] = PREFIXES[prefix];
+			return length + 1;
+		}
+
+		@Override
+		public String formatLabel(double value) {
+			char[] buffer = new char[MAX_LENGTH];
+			return new String(buffer, 0, formatLabel(value, buffer, 0));
+		}
+	}
+}
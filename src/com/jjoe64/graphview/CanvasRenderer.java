@@ -0,0 +1,198 @@
+package com.jjoe64.graphview;
+
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Paint.Style;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+/**
+ * {@link GraphRenderer} on an android Canvas, with its own paint.
+ * GraphView points it at the canvas of every frame, see {@link #setCanvas(Canvas)}.
+ */
+public class CanvasRenderer implements GraphRenderer {
+	private Canvas canvas;
+	private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Path path = new Path();
+	private final Rect textBounds = new Rect();
+	private final RectF rect = new RectF();
+
+	/**
+	 * the last gradient, it is reused while the same one is set
+	 */
+	private Shader gradient;
+	private float gradientTop;
+	private float gradientBottom;
+	private int gradientTopColor;
+	private int gradientBottomColor;
+
+	public CanvasRenderer() {
+		paint.setStrokeCap(Paint.Cap.ROUND);
+	}
+
+	public CanvasRenderer(Canvas canvas) {
+		this();
+		this.canvas = canvas;
+	}
+
+	public void setCanvas(Canvas canvas) {
+		this.canvas = canvas;
+	}
+
+	public Canvas getCanvas() {
+		return canvas;
+	}
+
+	@Override
+	public void setColor(int color) {
+		paint.setShader(null);
+		paint.setColor(color);
+	}
+
+	@Override
+	public void setFillGradient(float top, float bottom, int topColor, int bottomColor) {
+		if (gradient == null || gradientTop != top || gradientBottom != bottom
+				|| gradientTopColor != topColor || gradientBottomColor != bottomColor) {
+			gradientTop = top;
+			gradientBottom = bottom;
+			gradientTopColor = topColor;
+			gradientBottomColor = bottomColor;
+			gradient = new LinearGradient(0, top, 0, bottom, topColor, bottomColor, Shader.TileMode.CLAMP);
+		}
+		paint.setColor(0xFF000000);
+		paint.setShader(gradient);
+	}
+
+	@Override
+	public void setStrokeWidth(float width) {
+		paint.setStrokeWidth(width);
+	}
+
+	@Override
+	public void setTextSize(float size) {
+		paint.setTextSize(size);
+	}
+
+	@Override
+	public void setTextAlign(int align) {
+		paint.setTextAlign(align == ALIGN_RIGHT ? Align.RIGHT : align == ALIGN_CENTER ? Align.CENTER : Align.LEFT);
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float stopX, float stopY) {
+		canvas.drawLine(startX, startY, stopX, stopY, paint);
+	}
+
+	@Override
+	public void drawLines(float[] points, int offset, int count) {
+		canvas.drawLines(points, offset, count, paint);
+	}
+
+	@Override
+	public void fillRect(float left, float top, float right, float bottom) {
+		paint.setStyle(Style.FILL);
+		canvas.drawRect(left, top, right, bottom, paint);
+	}
+
+	@Override
+	public void fillRoundRect(float left, float top, float right, float bottom, float radius) {
+		paint.setStyle(Style.FILL);
+		rect.set(left, top, right, bottom);
+		canvas.drawRoundRect(rect, radius, radius, paint);
+	}
+
+	@Override
+	public void fillCircle(float cx, float cy, float radius) {
+		paint.setStyle(Style.FILL);
+		canvas.drawCircle(cx, cy, radius, paint);
+	}
+
+	@Override
+	public void beginPath() {
+		path.rewind();
+	}
+
+	@Override
+	public void moveTo(float x, float y) {
+		path.moveTo(x, y);
+	}
+
+	@Override
+	public void lineTo(float x, float y) {
+		path.lineTo(x, y);
+	}
+
+	@Override
+	public void quadTo(float x1, float y1, float x2, float y2) {
+		path.quadTo(x1, y1, x2, y2);
+	}
+
+	@Override
+	public void addRect(float left, float top, float right, float bottom) {
+		path.addRect(left, top, right, bottom, Path.Direction.CW);
+	}
+
+	@Override
+	public void closePath() {
+		path.close();
+	}
+
+	@Override
+	public void strokePath() {
+		paint.setStyle(Style.STROKE);
+		canvas.drawPath(path, paint);
+	}
+
+	@Override
+	public void fillPath() {
+		paint.setStyle(Style.FILL);
+		canvas.drawPath(path, paint);
+	}
+
+	@Override
+	public void drawText(char[] text, int start, int length, float x, float y) {
+		paint.setStyle(Style.FILL);
+		canvas.drawText(text, start, length, x, y, paint);
+	}
+
+	@Override
+	public void drawText(String text, float x, float y) {
+		paint.setStyle(Style.FILL);
+		canvas.drawText(text, x, y, paint);
+	}
+
+	@Override
+	public float measureText(char[] text, int start, int length) {
+		return paint.measureText(text, start, length);
+	}
+
+	@Override
+	public float getTextHeight() {
+		paint.getTextBounds("a", 0, 1, textBounds);
+		return textBounds.height();
+	}
+
+	@Override
+	public void save() {
+		canvas.save();
+	}
+
+	@Override
+	public void translate(float dx, float dy) {
+		canvas.translate(dx, dy);
+	}
+
+	@Override
+	public void clipRect(float left, float top, float right, float bottom) {
+		canvas.clipRect(left, top, right, bottom);
+	}
+
+	@Override
+	public void restore() {
+		canvas.restore();
+	}
+}
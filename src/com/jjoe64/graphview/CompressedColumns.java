@@ -0,0 +1,542 @@
+package com.jjoe64.graphview;
+
+/**
+ * compressed x/y columns for long histories, in blocks of {@link #BLOCK_SIZE} points.
+ * within a block the x values are stored as delta-of-delta of their bits and the y values as XOR
+ * with the previous value, with the variable length codes of Facebook's Gorilla. Regular x intervals
+ * and slowly changing y values need only a few bits per point. The encoding is lossless.
+ * every sealed block has a header with its first, last, smallest and largest point. Searches and
+ * min/max queries only decode the blocks at the edges of a range, zoomed out graphs are drawn from
+ * the headers without decoding.
+ *
+ * the writer appends under the lock of the series, {@link #blocks()} returns an immutable view for
+ * snapshots. The bits and headers that a view covers are never changed by later appends.
+ */
+final class CompressedColumns {
+	static final int BLOCK_BITS = 8;
+	static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+	static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	/**
+	 * the decoded block of one thread, for reading single values.
+	 * the content of a block only depends on its bits, so it stays valid for later views of the same columns.
+	 */
+	private static final class DecodedBlock {
+		long[] words;
+		long bitOffset;
+		int length;
+		final double[] valuesX = new double[BLOCK_SIZE];
+		final double[] valuesY = new double[BLOCK_SIZE];
+	}
+
+	private static final ThreadLocal<DecodedBlock> decodedBlock = new ThreadLocal<DecodedBlock>() {
+		@Override
+		protected DecodedBlock initialValue() {
+			return new DecodedBlock();
+		}
+	};
+
+	/**
+	 * the headers of the sealed blocks, with min/max indexes over them.
+	 * the arrays are replaced when they grow, like the columns of a series.
+	 */
+	private static final class Headers {
+		final long[] bitOffsets;
+		final double[] firstX;
+		final double[] lastX;
+		final double[] lastY;
+		final double[] minY;
+		final double[] minYAtX;
+		final double[] maxY;
+		final double[] maxYAtX;
+		final MinMaxIndex minIndex = new MinMaxIndex();
+		final MinMaxIndex maxIndex = new MinMaxIndex();
+
+		Headers(int capacity) {
+			bitOffsets = new long[capacity];
+			firstX = new double[capacity];
+			lastX = new double[capacity];
+			lastY = new double[capacity];
+			minY = new double[capacity];
+			minYAtX = new double[capacity];
+			maxY = new double[capacity];
+			maxYAtX = new double[capacity];
+		}
+
+		/**
+		 * @param sealed number of sealed blocks
+		 * @return a copy with twice the capacity, this one is not modified
+		 */
+		Headers grow(int sealed) {
+			Headers headers = new Headers(bitOffsets.length * 2);
+			System.arraycopy(bitOffsets, 0, headers.bitOffsets, 0, bitOffsets.length);
+			System.arraycopy(firstX, 0, headers.firstX, 0, firstX.length);
+			System.arraycopy(lastX, 0, headers.lastX, 0, lastX.length);
+			System.arraycopy(lastY, 0, headers.lastY, 0, lastY.length);
+			System.arraycopy(minY, 0, headers.minY, 0, minY.length);
+			System.arraycopy(minYAtX, 0, headers.minYAtX, 0, minYAtX.length);
+			System.arraycopy(maxY, 0, headers.maxY, 0, maxY.length);
+			System.arraycopy(maxYAtX, 0, headers.maxYAtX, 0, maxYAtX.length);
+			headers.rebuildIndexes(sealed);
+			return headers;
+		}
+
+		void rebuildIndexes(int sealed) {
+			minIndex.rebuild(minY, sealed);
+			maxIndex.rebuild(maxY, sealed);
+		}
+	}
+
+	/**
+	 * immutable view of the columns at one moment
+	 */
+	static final class Blocks {
+		private final long[] words;
+		private final int size;
+		private final Headers headers;
+
+		Blocks(long[] words, int size, Headers headers) {
+			this.words = words;
+			this.size = size;
+			this.headers = headers;
+		}
+
+		int size() {
+			return size;
+		}
+
+		/**
+		 * single values are read from the decoded block of the current thread, it is decoded in place
+		 * when another block is read. Sequential reads decode every block once and allocate nothing.
+		 */
+		private DecodedBlock decoded(int index) {
+			int block = index >>> BLOCK_BITS;
+			long bitOffset = headers.bitOffsets[block];
+			int length = blockLength(block);
+			DecodedBlock decoded = decodedBlock.get();
+			if (decoded.words != words || decoded.bitOffset != bitOffset || decoded.length != length) {
+				decode(block, decoded.valuesX, decoded.valuesY, 0);
+				decoded.words = words;
+				decoded.bitOffset = bitOffset;
+				decoded.length = length;
+			}
+			return decoded;
+		}
+
+		double getX(int index) {
+			return decoded(index).valuesX[index & BLOCK_MASK];
+		}
+
+		double getY(int index) {
+			return decoded(index).valuesY[index & BLOCK_MASK];
+		}
+
+		/**
+		 * @return number of points in the block
+		 */
+		int blockLength(int block) {
+			return Math.min(BLOCK_SIZE, size - (block << BLOCK_BITS));
+		}
+
+		/**
+		 * @return number of full blocks, only they have a header besides firstX
+		 */
+		private int sealedBlocks() {
+			return size >>> BLOCK_BITS;
+		}
+
+		/**
+		 * writes the points of a block into the arrays
+		 * @return number of points
+		 */
+		int decode(int block, double[] valuesX, double[] valuesY, int offset) {
+			int length = blockLength(block);
+			long pos = headers.bitOffsets[block];
+			long xBits = read(words, pos, 64);
+			long yBits = read(words, pos + 64, 64);
+			pos += 128;
+			valuesX[offset] = Double.longBitsToDouble(xBits);
+			valuesY[offset] = Double.longBitsToDouble(yBits);
+
+			long delta = 0;
+			int leading = 0;
+			int trailing = 0;
+			for (int i=1; i<length; i++) {
+				// x: delta-of-delta
+				long dod;
+				if (read(words, pos++, 1) == 0) {
+					dod = 0;
+				} else if (read(words, pos++, 1) == 0) {
+					dod = read(words, pos, 7) - 63;
+					pos += 7;
+				} else if (read(words, pos++, 1) == 0) {
+					dod = read(words, pos, 9) - 255;
+					pos += 9;
+				} else if (read(words, pos++, 1) == 0) {
+					dod = read(words, pos, 12) - 2047;
+					pos += 12;
+				} else {
+					dod = read(words, pos, 64);
+					pos += 64;
+				}
+				delta += dod;
+				xBits += delta;
+				valuesX[offset + i] = Double.longBitsToDouble(xBits);
+
+				// y: XOR with the previous value
+				if (read(words, pos++, 1) != 0) {
+					if (read(words, pos++, 1) != 0) {
+						leading = (int) read(words, pos, 6);
+						int meaningful = (int) read(words, pos + 6, 6) + 1;
+						trailing = 64 - leading - meaningful;
+						pos += 12;
+					}
+					int meaningful = 64 - leading - trailing;
+					yBits ^= read(words, pos, meaningful) << trailing;
+					pos += meaningful;
+				}
+				valuesY[offset + i] = Double.longBitsToDouble(yBits);
+			}
+			return length;
+		}
+
+		/**
+		 * @return the first y value of a block, it is stored uncompressed
+		 */
+		private double firstY(int block) {
+			return Double.longBitsToDouble(read(words, headers.bitOffsets[block] + 64, 64));
+		}
+
+		/**
+		 * @return index of the first point with x >= valueX, or size() if there is none
+		 */
+		int lowerBound(double valueX) {
+			int block = lastBlockBefore(valueX, false);
+			if (block < 0) {
+				return 0;
+			}
+			if (block < sealedBlocks() && headers.lastX[block] < valueX) {
+				// the block ends before the value, no need to decode it
+				return (block + 1) << BLOCK_BITS;
+			}
+			DecodedBlock decoded = decoded(block << BLOCK_BITS);
+			int length = blockLength(block);
+			int i = 0;
+			while (i < length && decoded.valuesX[i] < valueX) {
+				i++;
+			}
+			return (block << BLOCK_BITS) + i;
+		}
+
+		/**
+		 * @return index of the first point with x > valueX, or size() if there is none
+		 */
+		int upperBound(double valueX) {
+			int block = lastBlockBefore(valueX, true);
+			if (block < 0) {
+				return 0;
+			}
+			if (block < sealedBlocks() && headers.lastX[block] <= valueX) {
+				return (block + 1) << BLOCK_BITS;
+			}
+			DecodedBlock decoded = decoded(block << BLOCK_BITS);
+			int length = blockLength(block);
+			int i = 0;
+			while (i < length && decoded.valuesX[i] <= valueX) {
+				i++;
+			}
+			return (block << BLOCK_BITS) + i;
+		}
+
+		/**
+		 * binary search over the first x of the blocks
+		 * @param inclusive true for the last block with firstX <= valueX, false for firstX < valueX
+		 * @return the block or -1
+		 */
+		private int lastBlockBefore(double valueX, boolean inclusive) {
+			double[] firstX = headers.firstX;
+			int low = 0;
+			int high = (size + BLOCK_MASK) >>> BLOCK_BITS;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (firstX[mid] < valueX || (inclusive && firstX[mid] == valueX)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low - 1;
+		}
+
+		/**
+		 * min/max of a range. The blocks that are completely inside of it are answered by the index
+		 * over their headers, only the blocks at the edges are decoded.
+		 * @return NaN if the range is empty
+		 */
+		double getY(int fromIndex, int toIndex, boolean largest) {
+			int firstFull = (fromIndex + BLOCK_MASK) >>> BLOCK_BITS;
+			int endFull = Math.min(toIndex >>> BLOCK_BITS, sealedBlocks());
+			if (firstFull >= endFull) {
+				return scanY(fromIndex, toIndex, largest, Double.NaN);
+			}
+			double result = largest ? headers.maxIndex.getMax(firstFull, endFull) : headers.minIndex.getMin(firstFull, endFull);
+			result = scanY(fromIndex, firstFull << BLOCK_BITS, largest, result);
+			return scanY(endFull << BLOCK_BITS, toIndex, largest, result);
+		}
+
+		private double scanY(int fromIndex, int toIndex, boolean largest, double result) {
+			int index = fromIndex;
+			while (index < toIndex) {
+				int end = Math.min(toIndex, ((index >>> BLOCK_BITS) + 1) << BLOCK_BITS);
+				DecodedBlock decoded = decoded(index);
+				for (; index < end; index++) {
+					double y = decoded.valuesY[index & BLOCK_MASK];
+					result = largest ? MinMaxIndex.max(result, y) : MinMaxIndex.min(result, y);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * writes a summary of a range into out, from the block headers: the first, smallest, largest
+		 * and last point of buckets of whole blocks that are about one pixel wide. The blocks at the
+		 * edges of the range and the open block are written point by point.
+		 * @param pixels width of the range in pixels
+		 * @return false if a block is more than two pixels wide, then the decoded data should be drawn
+		 */
+		boolean getLevelOfDetail(int fromIndex, int toIndex, float pixels, GraphViewDataBuffer out) {
+			if (pixels < 1) {
+				return false;
+			}
+			double pointsPerPixel = (toIndex - fromIndex) / pixels;
+			if (pointsPerPixel < BLOCK_SIZE / 2) {
+				return false;
+			}
+			int blocksPerBucket = Math.max(1, (int) (pointsPerPixel / BLOCK_SIZE));
+
+			out.clear();
+			int firstFull = (fromIndex + BLOCK_MASK) >>> BLOCK_BITS;
+			int endFull = Math.min(toIndex >>> BLOCK_BITS, sealedBlocks());
+			if (firstFull >= endFull) {
+				emitPoints(fromIndex, toIndex, out);
+				return true;
+			}
+			emitPoints(fromIndex, firstFull << BLOCK_BITS, out);
+			for (int block=firstFull; block<endFull; block+=blocksPerBucket) {
+				emitBucket(block, Math.min(block + blocksPerBucket, endFull), out);
+			}
+			emitPoints(endFull << BLOCK_BITS, toIndex, out);
+			return true;
+		}
+
+		private void emitPoints(int fromIndex, int toIndex, GraphViewDataBuffer out) {
+			for (int i=fromIndex; i<toIndex; i++) {
+				DecodedBlock decoded = decoded(i);
+				out.add(decoded.valuesX[i & BLOCK_MASK], decoded.valuesY[i & BLOCK_MASK]);
+			}
+		}
+
+		/**
+		 * first, min, max, last of the sealed blocks firstBlock to endBlock (exclusive), in the order of x
+		 */
+		private void emitBucket(int firstBlock, int endBlock, GraphViewDataBuffer out) {
+			Headers h = headers;
+			double lowest = Double.NaN;
+			double lowestX = 0;
+			double highest = Double.NaN;
+			double highestX = 0;
+			for (int block=firstBlock; block<endBlock; block++) {
+				if (lowest != lowest || h.minY[block] < lowest) {
+					lowest = h.minY[block];
+					lowestX = h.minYAtX[block];
+				}
+				if (highest != highest || h.maxY[block] > highest) {
+					highest = h.maxY[block];
+					highestX = h.maxYAtX[block];
+				}
+			}
+
+			double lastX = h.firstX[firstBlock];
+			out.add(lastX, firstY(firstBlock));
+			if (lowestX <= highestX) {
+				lastX = emitAfter(lastX, lowestX, lowest, out);
+				lastX = emitAfter(lastX, highestX, highest, out);
+			} else {
+				lastX = emitAfter(lastX, highestX, highest, out);
+				lastX = emitAfter(lastX, lowestX, lowest, out);
+			}
+			if (h.lastX[endBlock - 1] > lastX) {
+				out.add(h.lastX[endBlock - 1], h.lastY[endBlock - 1]);
+			}
+		}
+
+		/**
+		 * adds the point if it is after the last one and has a value
+		 * @return x of the last added point
+		 */
+		private static double emitAfter(double lastX, double valueX, double valueY, GraphViewDataBuffer out) {
+			if (valueX > lastX && valueY == valueY) {
+				out.add(valueX, valueY);
+				return valueX;
+			}
+			return lastX;
+		}
+	}
+
+	private long[] words = new long[64];
+	private long bitLength;
+	private int size;
+	private Headers headers;
+
+	/**
+	 * encoder state of the open block
+	 */
+	private long prevXBits;
+	private long prevDelta;
+	private long prevYBits;
+	private int prevLeading;
+	private int prevTrailing;
+	private double openMinY;
+	private double openMinYAtX;
+	private double openMaxY;
+	private double openMaxYAtX;
+
+	CompressedColumns() {
+		headers = new Headers(16);
+		headers.rebuildIndexes(0);
+	}
+
+	void append(double valueX, double valueY) {
+		long xBits = Double.doubleToRawLongBits(valueX);
+		long yBits = Double.doubleToRawLongBits(valueY);
+		int block = size >>> BLOCK_BITS;
+		if ((size & BLOCK_MASK) == 0) {
+			// new block, starts with the raw values
+			if (block == headers.bitOffsets.length) {
+				headers = headers.grow(block);
+			}
+			headers.bitOffsets[block] = bitLength;
+			headers.firstX[block] = valueX;
+			write(xBits, 64);
+			write(yBits, 64);
+			prevDelta = 0;
+			prevLeading = -1;
+			openMinY = Double.NaN;
+			openMaxY = Double.NaN;
+		} else {
+			long delta = xBits - prevXBits;
+			writeDeltaOfDelta(delta - prevDelta);
+			prevDelta = delta;
+			writeXor(yBits ^ prevYBits);
+		}
+		prevXBits = xBits;
+		prevYBits = yBits;
+		if (openMinY != openMinY || valueY < openMinY) {
+			openMinY = valueY;
+			openMinYAtX = valueX;
+		}
+		if (openMaxY != openMaxY || valueY > openMaxY) {
+			openMaxY = valueY;
+			openMaxYAtX = valueX;
+		}
+		size++;
+
+		if ((size & BLOCK_MASK) == 0) {
+			// block is full, the header makes it searchable
+			Headers h = headers;
+			h.lastX[block] = valueX;
+			h.lastY[block] = valueY;
+			h.minY[block] = openMinY;
+			h.minYAtX[block] = openMinYAtX;
+			h.maxY[block] = openMaxY;
+			h.maxYAtX[block] = openMaxYAtX;
+			h.minIndex.update(block, block + 1);
+			h.maxIndex.update(block, block + 1);
+		}
+	}
+
+	/**
+	 * @return a view of the current state for a snapshot
+	 */
+	Blocks blocks() {
+		return new Blocks(words, size, headers);
+	}
+
+	private void writeDeltaOfDelta(long dod) {
+		if (dod == 0) {
+			write(0, 1);
+		} else if (dod >= -63 && dod <= 64) {
+			write(2, 2);
+			write(dod + 63, 7);
+		} else if (dod >= -255 && dod <= 256) {
+			write(6, 3);
+			write(dod + 255, 9);
+		} else if (dod >= -2047 && dod <= 2048) {
+			write(14, 4);
+			write(dod + 2047, 12);
+		} else {
+			write(15, 4);
+			write(dod, 64);
+		}
+	}
+
+	private void writeXor(long xor) {
+		if (xor == 0) {
+			write(0, 1);
+			return;
+		}
+		int leading = Long.numberOfLeadingZeros(xor);
+		int trailing = Long.numberOfTrailingZeros(xor);
+		if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+			// fits into the meaningful bits of the previous value
+			write(2, 2);
+			write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+		} else {
+			int meaningful = 64 - leading - trailing;
+			write(3, 2);
+			write(leading, 6);
+			write(meaningful - 1, 6);
+			write(xor >>> trailing, meaningful);
+			prevLeading = leading;
+			prevTrailing = trailing;
+		}
+	}
+
+	/**
+	 * appends the lowest bits of value, most significant first
+	 */
+	private void write(long value, int bits) {
+		int word = (int) (bitLength >>> 6);
+		if (word + 1 >= words.length) {
+			// the old array may still be used by snapshots
+			long[] newWords = new long[words.length * 2];
+			System.arraycopy(words, 0, newWords, 0, word + 1);
+			words = newWords;
+		}
+		if (bits < 64) {
+			value &= (1L << bits) - 1;
+		}
+		int free = 64 - (int) (bitLength & 63);
+		if (bits <= free) {
+			words[word] |= value << (free - bits);
+		} else {
+			words[word] |= value >>> (bits - free);
+			words[word + 1] |= value << (64 - (bits - free));
+		}
+		bitLength += bits;
+	}
+
+	/**
+	 * @return the bits at pos, most significant first
+	 */
+	private static long read(long[] words, long pos, int bits) {
+		int word = (int) (pos >>> 6);
+		int offset = (int) (pos & 63);
+		int available = 64 - offset;
+		if (bits <= available) {
+			return words[word] << offset >>> (64 - bits);
+		}
+		int rest = bits - available;
+		return (words[word] << offset >>> offset) << rest | (words[word + 1] >>> (64 - rest));
+	}
+}
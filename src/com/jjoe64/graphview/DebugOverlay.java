@@ -0,0 +1,99 @@
+package com.jjoe64.graphview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * draws the {@link FrameMetrics} of the last frame in the top left corner of the graph.
+ * the text is written into one char buffer, so the overlay creates no Strings per frame.
+ */
+class DebugOverlay {
+	private static final char[] FPS = "fps ".toCharArray();
+	private static final char[] LABELS = "labels ".toCharArray();
+	private static final char[] GRID = " grid ".toCharArray();
+	private static final char[] LEGEND = " legend ".toCharArray();
+	private static final char[] MS = " ms".toCharArray();
+	private static final char[] SERIES = "series ".toCharArray();
+	private static final char[] DRAW_CALLS = "draw calls ".toCharArray();
+	private static final char[] FRAME = " frame ".toCharArray();
+
+	private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint backgroundPaint = new Paint();
+	private char[] chars = new char[256];
+	private int length;
+
+	DebugOverlay(float textSize) {
+		textPaint.setColor(Color.WHITE);
+		textPaint.setTextSize(textSize);
+		backgroundPaint.setARGB(160, 0, 0, 0);
+	}
+
+	void draw(Canvas canvas, FrameMetrics metrics) {
+		int lines = 3 + metrics.getSeriesCount();
+		float lineHeight = textPaint.getTextSize() * 1.2f;
+		float padding = lineHeight / 4;
+		canvas.drawRect(0, 0, 20 * textPaint.getTextSize(), lines * lineHeight + 2 * padding, backgroundPaint);
+
+		float y = padding + lineHeight - textPaint.descent();
+
+		// fps 60 frame 3.2 ms
+		length = 0;
+		append(FPS);
+		appendDecimal(metrics.getFramesPerSecond(), 0);
+		append(FRAME);
+		appendMillis(metrics.getFrameNanos());
+		canvas.drawText(chars, 0, length, padding, y, textPaint);
+		y += lineHeight;
+
+		// labels 0.1 ms grid 0.2 ms legend 0 ms
+		length = 0;
+		append(LABELS);
+		appendMillis(metrics.getPhaseNanos(FrameMetrics.PHASE_LABELS));
+		append(GRID);
+		appendMillis(metrics.getPhaseNanos(FrameMetrics.PHASE_GRID));
+		append(LEGEND);
+		appendMillis(metrics.getPhaseNanos(FrameMetrics.PHASE_LEGEND));
+		canvas.drawText(chars, 0, length, padding, y, textPaint);
+		y += lineHeight;
+
+		// series 0: 2.5 ms 1,000,000/1,200
+		for (int i=0; i<metrics.getSeriesCount(); i++) {
+			length = 0;
+			append(SERIES);
+			appendInteger(i);
+			chars[length++] = ':';
+			chars[length++] = ' ';
+			appendMillis(metrics.getSeriesNanos(i));
+			chars[length++] = ' ';
+			appendInteger(metrics.getPointsInViewport(i));
+			chars[length++] = '/';
+			appendInteger(metrics.getPointsDrawn(i));
+			canvas.drawText(chars, 0, length, padding, y, textPaint);
+			y += lineHeight;
+		}
+
+		length = 0;
+		append(DRAW_CALLS);
+		appendInteger(metrics.getDrawCalls());
+		canvas.drawText(chars, 0, length, padding, y, textPaint);
+	}
+
+	private void append(char[] text) {
+		System.arraycopy(text, 0, chars, length, text.length);
+		length += text.length;
+	}
+
+	private void appendMillis(long nanos) {
+		appendDecimal(nanos / 1e6, 2);
+		append(MS);
+	}
+
+	private void appendDecimal(double value, int fractionDigits) {
+		length += LabelDigits.writeDecimal(value, fractionDigits, (char) 0, '.', '-', chars, length);
+	}
+
+	private void appendInteger(int value) {
+		length += LabelDigits.writeInteger(value, ',', chars, length);
+	}
+}
@@ -0,0 +1,125 @@
+package com.jjoe64.graphview;
+
+/**
+ * reduces the number of data points that will be drawn, depending on the width of the graph in pixels.
+ * the decimator gets the data that is inside the viewport and returns the points that should be drawn.
+ * @see GraphView#setDecimator(Decimator)
+ */
+public interface Decimator {
+	/**
+	 * @param values the data inside the viewport (plus one point on each side)
+	 * @param minX x value at the left edge of the graph
+	 * @param diffX x range of the graph
+	 * @param graphwidth width of the graph in pixels
+	 * @param out reusable buffer for the result
+	 * @return the data to draw: either values itself (nothing to reduce) or out
+	 */
+	public GraphViewDataSet decimate(GraphViewDataSet values, double minX, double diffX, float graphwidth, GraphViewDataBuffer out);
+
+	/**
+	 * Largest-Triangle-Three-Buckets downsampling (Sveinn Steinarsson, 2013).
+	 * keeps about 2 points per pixel. The first and the last point are always kept,
+	 * from every bucket in between the point that forms the largest triangle with its neighbours is chosen,
+	 * so peaks stay visible.
+	 */
+	public static class LargestTriangleThreeBucketsDecimator implements Decimator {
+		@Override
+		public GraphViewDataSet decimate(GraphViewDataSet values, double minX, double diffX, float graphwidth, GraphViewDataBuffer out) {
+			int size = values.size();
+			int threshold = (int) (graphwidth * 2);
+			if (threshold < 3 || size <= threshold) {
+				return values;
+			}
+
+			out.clear();
+			// size of the buckets, the first and the last point have a bucket of their own
+			double every = (double) (size - 2) / (threshold - 2);
+
+			int a = 0;
+			out.add(values.getX(0), values.getY(0));
+			for (int i=0; i<threshold-2; i++) {
+				// average of the next bucket
+				int avgStart = (int) ((i+1) * every) + 1;
+				int avgEnd = Math.min((int) ((i+2) * every) + 1, size);
+				double avgX = 0;
+				double avgY = 0;
+				for (int j=avgStart; j<avgEnd; j++) {
+					avgX += values.getX(j);
+					avgY += values.getY(j);
+				}
+				avgX /= avgEnd - avgStart;
+				avgY /= avgEnd - avgStart;
+
+				// point of the current bucket with the largest triangle
+				int rangeStart = (int) (i * every) + 1;
+				int rangeEnd = (int) ((i+1) * every) + 1;
+				double ax = values.getX(a);
+				double ay = values.getY(a);
+				double maxArea = -1;
+				int next = rangeStart;
+				for (int j=rangeStart; j<rangeEnd; j++) {
+					double area = Math.abs((ax - avgX) * (values.getY(j) - ay) - (ax - values.getX(j)) * (avgY - ay));
+					if (area > maxArea) {
+						maxArea = area;
+						next = j;
+					}
+				}
+				out.add(values.getX(next), values.getY(next));
+				a = next;
+			}
+			out.add(values.getX(size-1), values.getY(size-1));
+			return out;
+		}
+	}
+
+	/**
+	 * keeps the minimal and the maximal point of every pixel column, in the order of their x value.
+	 * the drawn line looks exactly like the line of all data, every spike stays visible.
+	 * The first and the last point are always kept.
+	 */
+	public static class MinMaxDecimator implements Decimator {
+		@Override
+		public GraphViewDataSet decimate(GraphViewDataSet values, double minX, double diffX, float graphwidth, GraphViewDataBuffer out) {
+			int size = values.size();
+			if (size <= graphwidth * 2 || diffX <= 0) {
+				return values;
+			}
+
+			out.clear();
+			out.add(values.getX(0), values.getY(0));
+
+			double pixelsPerX = graphwidth / diffX;
+			long column = Long.MIN_VALUE;
+			int minIdx = -1;
+			int maxIdx = -1;
+			for (int i=1; i<size-1; i++) {
+				long c = (long) Math.floor((values.getX(i) - minX) * pixelsPerX);
+				if (c != column) {
+					flush(values, minIdx, maxIdx, out);
+					column = c;
+					minIdx = maxIdx = i;
+				} else {
+					double y = values.getY(i);
+					if (y < values.getY(minIdx)) minIdx = i;
+					if (y > values.getY(maxIdx)) maxIdx = i;
+				}
+			}
+			flush(values, minIdx, maxIdx, out);
+
+			out.add(values.getX(size-1), values.getY(size-1));
+			return out;
+		}
+
+		private static void flush(GraphViewDataSet values, int minIdx, int maxIdx, GraphViewDataBuffer out) {
+			if (minIdx == -1) {
+				return;
+			}
+			int first = Math.min(minIdx, maxIdx);
+			int second = Math.max(minIdx, maxIdx);
+			out.add(values.getX(first), values.getY(first));
+			if (second != first) {
+				out.add(values.getX(second), values.getY(second));
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.jjoe64.graphview;
+
+/**
+ * what one frame of a graph cost: time per phase, points and draw calls per series.
+ * the instance is reused for every frame, read it in {@link FrameMetricsListener#onFrame(FrameMetrics)}
+ * and copy what you want to keep.
+ */
+public class FrameMetrics {
+	public static final int PHASE_LABELS = 0;
+	public static final int PHASE_GRID = 1;
+	public static final int PHASE_SERIES = 2;
+	public static final int PHASE_LEGEND = 3;
+	static final int PHASE_COUNT = 4;
+
+	/**
+	 * weight of the newest frame interval in the smoothed frame rate
+	 */
+	private static final double FPS_SMOOTHING = 0.1;
+
+	private final long[] phaseNanos = new long[PHASE_COUNT];
+	private long frameNanos;
+	private long frameStart;
+	private long lastFrameStart;
+	private double averageInterval;
+
+	private int seriesCount;
+	private long[] seriesNanos = new long[0];
+	private int[] pointsInViewport = new int[0];
+	private int[] pointsDrawn = new int[0];
+	private int drawCalls;
+	private int labelsWithoutAllocation;
+
+	/**
+	 * clears the counters of the last frame
+	 */
+	void beginFrame(int seriesCount) {
+		frameStart = System.nanoTime();
+		if (lastFrameStart != 0) {
+			long interval = frameStart - lastFrameStart;
+			averageInterval = averageInterval == 0 ? interval : averageInterval + FPS_SMOOTHING * (interval - averageInterval);
+		}
+		lastFrameStart = frameStart;
+
+		for (int i=0; i<PHASE_COUNT; i++) {
+			phaseNanos[i] = 0;
+		}
+		if (seriesNanos.length < seriesCount) {
+			seriesNanos = new long[seriesCount];
+			pointsInViewport = new int[seriesCount];
+			pointsDrawn = new int[seriesCount];
+		}
+		this.seriesCount = seriesCount;
+		drawCalls = 0;
+		labelsWithoutAllocation = 0;
+	}
+
+	void endFrame() {
+		frameNanos = System.nanoTime() - frameStart;
+	}
+
+	void addPhase(int phase, long nanos) {
+		phaseNanos[phase] += nanos;
+	}
+
+	void setSeries(int idx, long nanos, int inViewport, int drawn) {
+		seriesNanos[idx] = nanos;
+		pointsInViewport[idx] = inViewport;
+		pointsDrawn[idx] = drawn;
+	}
+
+	void addDrawCalls(int count) {
+		drawCalls += count;
+	}
+
+	void addLabelsWithoutAllocation(int count) {
+		labelsWithoutAllocation += count;
+	}
+
+	/**
+	 * @return time of the whole frame
+	 */
+	public long getFrameNanos() {
+		return frameNanos;
+	}
+
+	/**
+	 * @param phase one of the PHASE_ constants
+	 */
+	public long getPhaseNanos(int phase) {
+		return phaseNanos[phase];
+	}
+
+	/**
+	 * @return frame rate, smoothed over the last frames. 0 before the second frame
+	 */
+	public double getFramesPerSecond() {
+		return averageInterval > 0 ? 1e9 / averageInterval : 0;
+	}
+
+	public int getSeriesCount() {
+		return seriesCount;
+	}
+
+	/**
+	 * @return time of drawDataSeries for the series
+	 */
+	public long getSeriesNanos(int idxSeries) {
+		return seriesNanos[idxSeries];
+	}
+
+	/**
+	 * @return number of data points of the series in the viewport
+	 */
+	public int getPointsInViewport(int idxSeries) {
+		return pointsInViewport[idxSeries];
+	}
+
+	/**
+	 * @return number of points handed to drawDataSeries, after level of detail and decimation
+	 */
+	public int getPointsDrawn(int idxSeries) {
+		return pointsDrawn[idxSeries];
+	}
+
+	/**
+	 * @return canvas draw calls of grid, labels, series and legend.
+	 * graphs that draw series with custom code only count what they report with {@link GraphView#countDrawCalls(int)}
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	/**
+	 * @return labels that were written into the label buffers or taken from the label cache
+	 * instead of creating a new String
+	 */
+	public int getLabelsWithoutAllocation() {
+		return labelsWithoutAllocation;
+	}
+}
@@ -0,0 +1,13 @@
+package com.jjoe64.graphview;
+
+/**
+ * receives the metrics of every frame of a graph, see {@link GraphView#setFrameMetricsListener(FrameMetricsListener)}
+ */
+public interface FrameMetricsListener {
+	/**
+	 * called on the thread that drew the frame, that is the render thread with background rendering.
+	 * keep it short, it delays the next frame.
+	 * @param metrics reused for the next frame
+	 */
+	public void onFrame(FrameMetrics metrics);
+}
@@ -0,0 +1,380 @@
+package com.jjoe64.graphview;
+
+/**
+ * draws the parts of a graph through a {@link GraphRenderer}: grid, labels, title, legend, lines and bars.
+ * GraphView draws its frames with it, {@link HeadlessGraph} whole graphs. It has no android dependencies.
+ * the static methods keep no state, the series are drawn with reused buffers, so a painter draws on one
+ * thread at a time.
+ */
+final class GraphPainter {
+	static final float BORDER = 20;
+	static final float VERTICAL_LABEL_WIDTH = 100;
+	static final float HORIZONTAL_LABEL_HEIGHT = 80;
+
+	/**
+	 * positions of the legend, in the order of GraphView.LegendAlign
+	 */
+	static final int LEGEND_TOP = 0;
+	static final int LEGEND_MIDDLE = 1;
+	static final int LEGEND_BOTTOM = 2;
+
+	private static final int LEGEND_SHAPE_SIZE = 15;
+	private static final int LEGEND_BACKGROUND = 0xB4646464;
+	private static final int WHITE = 0xFFFFFFFF;
+
+	/**
+	 * shapes of the markers of a line graph
+	 */
+	static final int MARKER_CIRCLE = 1;
+	static final int MARKER_SQUARE = 2;
+	static final int MARKER_TRIANGLE = 3;
+
+	/**
+	 * bars of more colors are drawn one by one
+	 */
+	private static final int MAX_COLOR_BUCKETS = 16;
+
+	/**
+	 * reusable buffers for the projected points and the line segments
+	 */
+	private float[] points;
+	private float[] lines;
+
+	/**
+	 * bars of one color are collected as left, top, right, bottom and filled with one path
+	 */
+	private final float[][] bucketRects = new float[MAX_COLOR_BUCKETS][];
+	private final int[] bucketSizes = new int[MAX_COLOR_BUCKETS];
+	private final int[] bucketColors = new int[MAX_COLOR_BUCKETS];
+	private int bucketCount;
+
+	/**
+	 * maps data to pixel coordinates in one pass.
+	 * the values are rebased to the viewport origin (minX, minY) in double precision before they are
+	 * narrowed to float, so large x values (e.g. timestamps in milliseconds) don't lose precision.
+	 * @param buffer reusable output buffer, may be null
+	 * @return buffer or a larger buffer if it was too small, containing x0, y0, x1, y1, ...
+	 */
+	static float[] project(GraphViewDataSet values, double minX, double minY, double diffX, double diffY, float graphwidth, float graphheight, float left, float bottom, float[] buffer) {
+		int size = values.size();
+		if (buffer == null || buffer.length < size*2) {
+			buffer = new float[Math.max(size*2, 64)];
+		}
+		double scaleX = graphwidth / diffX;
+		double scaleY = graphheight / diffY;
+		for (int i=0, j=0; i<size; i++, j+=2) {
+			buffer[j] = left + (float) ((values.getX(i) - minX) * scaleX);
+			buffer[j+1] = bottom - (float) ((values.getY(i) - minY) * scaleY);
+		}
+		return buffer;
+	}
+
+	/**
+	 * grid, horizontal labels and title
+	 * @param textHeight height of the horizontal labels with their padding, 0 if they are not shown
+	 * @param numVerlabels number of vertical labels, there is one horizontal grid line per label
+	 * @return number of draw calls
+	 */
+	static int drawBackground(GraphRenderer renderer, float border, float horstart, float height, float width, float graphheight, int textHeight, LabelBuffer horlabels, int numVerlabels,
+			boolean drawGrid, int gridColor, boolean showHorizontalLabels, int horizLabelColor, float horizLabelTextSize, String title) {
+		int drawCalls = 0;
+		renderer.setStrokeWidth(0);
+		renderer.setTextSize(horizLabelTextSize);
+		renderer.setColor(gridColor);
+		if (drawGrid) {
+			// horizontal lines
+			int vers = numVerlabels - 1;
+			for (int i = 0; i < numVerlabels; i++) {
+				float y = ((graphheight / vers) * i) + border;
+				renderer.drawLine(horstart, y, width, y);
+			}
+			drawCalls += numVerlabels + (showHorizontalLabels ? 2 : 1) * horlabels.size();
+
+			// vertical lines + horizontal labels
+			float labelY = height - ((int) renderer.getTextHeight() >> 1);
+			int hors = horlabels.size() - 1;
+			for (int i = 0; i < horlabels.size(); i++) {
+				float x = ((width / hors) * i) + horstart;
+				renderer.drawLine(x, height - border - textHeight/2, x, border);
+
+				if (showHorizontalLabels) {
+					renderer.setTextAlign(i == 0 ? GraphRenderer.ALIGN_LEFT : i == hors ? GraphRenderer.ALIGN_RIGHT : GraphRenderer.ALIGN_CENTER);
+					renderer.setColor(horizLabelColor);
+					renderer.drawText(horlabels.chars(), horlabels.start(i), horlabels.length(i), x, labelY);
+					renderer.setColor(gridColor);
+				}
+			}
+		}
+
+		if (title != null) {
+			renderer.setTextAlign(GraphRenderer.ALIGN_CENTER);
+			renderer.drawText(title, (width / 2) + horstart, border - 4);
+			drawCalls++;
+		}
+		return drawCalls;
+	}
+
+	/**
+	 * draws the vertical labels right aligned, from top to bottom
+	 * @param right x of the right edge of the labels
+	 */
+	static void drawVerlabels(GraphRenderer renderer, LabelBuffer verlabels, float right, float graphheight, float textSize, int color) {
+		renderer.setTextAlign(GraphRenderer.ALIGN_RIGHT);
+		renderer.setTextSize(textSize);
+		renderer.setColor(color);
+		int textHeight = (int) renderer.getTextHeight();
+
+		int vers = verlabels.size() - 1;
+		for (int i = 0; i < verlabels.size(); i++) {
+			float y = ((graphheight / vers) * i) + BORDER + (textHeight / 2);
+			renderer.drawText(verlabels.chars(), verlabels.start(i), verlabels.length(i), right, y);
+		}
+	}
+
+	/**
+	 * a box with the color and the description of every series
+	 * @param legendAlign LEGEND_TOP, LEGEND_MIDDLE or LEGEND_BOTTOM
+	 * @param descriptions null entries are left out
+	 * @return number of draw calls
+	 */
+	static int drawLegend(GraphRenderer renderer, float height, float width, float legendWidth, int legendAlign, int count, int[] colors, String[] descriptions, float textSize) {
+		int shapeSize = LEGEND_SHAPE_SIZE;
+		float legendHeight = (shapeSize+5)*count +5;
+		float lLeft = width-legendWidth - 10;
+		float lTop;
+		switch (legendAlign) {
+		case LEGEND_TOP:
+			lTop = 10;
+			break;
+		case LEGEND_MIDDLE:
+			lTop = height/2 - legendHeight/2;
+			break;
+		default:
+			lTop = height - BORDER - legendHeight -10;
+		}
+		renderer.setColor(LEGEND_BACKGROUND);
+		renderer.fillRoundRect(lLeft, lTop, lLeft+legendWidth, lTop+legendHeight, 8);
+		renderer.setTextSize(textSize);
+		renderer.setTextAlign(GraphRenderer.ALIGN_LEFT);
+		int drawCalls = 1 + count;
+
+		for (int i=0; i<count; i++) {
+			renderer.setColor(colors[i]);
+			renderer.fillRect(lLeft+5, lTop+5+(i*(shapeSize+5)), lLeft+5+shapeSize, lTop+((i+1)*(shapeSize+5)));
+			if (descriptions[i] != null) {
+				renderer.setColor(WHITE);
+				renderer.drawText(descriptions[i], lLeft+5+shapeSize+5, lTop+shapeSize+(i*(shapeSize+5)));
+				drawCalls++;
+			}
+		}
+		return drawCalls;
+	}
+
+	/**
+	 * projects the data of a series into the buffer of the painter
+	 * @return x0, y0, x1, y1, ... valid until the next call
+	 * @see #project(GraphViewDataSet, double, double, double, double, float, float, float, float, float[])
+	 */
+	float[] project(GraphViewDataSet values, double minX, double minY, double diffX, double diffY, float graphwidth, float graphheight, float left, float bottom) {
+		points = project(values, minX, minY, diffX, diffY, graphwidth, graphheight, left, bottom, points);
+		return points;
+	}
+
+	/**
+	 * fills the area under a line as one closed path down to the bottom edge
+	 * @param points projected points x0, y0, x1, y1, ...
+	 * @param size number of points
+	 * @param top y of the top edge of the graph, where the gradient starts
+	 * @param gradientColors top and bottom color, or null to fill with color
+	 * @return number of draw calls
+	 */
+	int drawArea(GraphRenderer renderer, float[] points, int size, float top, float bottom, int color, int[] gradientColors) {
+		if (size < 2) {
+			return 0;
+		}
+		renderer.beginPath();
+		renderer.moveTo(points[0], bottom);
+		for (int i = 0; i < size; i++) {
+			renderer.lineTo(points[2*i], points[2*i+1]);
+		}
+		renderer.lineTo(points[2*size-2], bottom);
+		renderer.closePath();
+		if (gradientColors != null) {
+			renderer.setFillGradient(top, bottom, gradientColors[0], gradientColors[1]);
+		} else {
+			renderer.setColor(color);
+		}
+		renderer.fillPath();
+		return 1;
+	}
+
+	/**
+	 * draws the line through the points of a series
+	 * @param points projected points x0, y0, x1, y1, ...
+	 * @param size number of points
+	 * @param smooth true for quadratic curves through the midpoints of the segments
+	 * @return number of draw calls
+	 */
+	int drawLine(GraphRenderer renderer, float[] points, int size, float thickness, int color, boolean smooth) {
+		if (size < 2) {
+			return 0;
+		}
+		renderer.setStrokeWidth(thickness);
+		renderer.setColor(color);
+		if (smooth) {
+			renderer.beginPath();
+			renderer.moveTo(points[0], points[1]);
+			for (int i = 1; i < size; i++) {
+				float startX = points[2*i-2];
+				float startY = points[2*i-1];
+				float midX = (startX + points[2*i]) / 2;
+				float midY = (startY + points[2*i+1]) / 2;
+				if (i == 1) {
+					renderer.lineTo(midX, midY);
+				} else {
+					renderer.quadTo(startX, startY, midX, midY);
+				}
+			}
+			renderer.strokePath();
+		} else {
+			// all segments with one draw call: x0, y0, x1, y1, x1, y1, x2, y2, ...
+			int count = (size-1)*4;
+			if (lines == null || lines.length < count) {
+				lines = new float[Math.max(count, 128)];
+			}
+			for (int i = 1, j = 0; i < size; i++, j += 4) {
+				lines[j] = points[2*i-2];
+				lines[j+1] = points[2*i-1];
+				lines[j+2] = points[2*i];
+				lines[j+3] = points[2*i+1];
+			}
+			renderer.drawLines(lines, 0, count);
+		}
+		return 1;
+	}
+
+	/**
+	 * draws a marker on every point
+	 * @param points projected points x0, y0, x1, y1, ...
+	 * @param shape MARKER_CIRCLE, MARKER_SQUARE or MARKER_TRIANGLE
+	 * @param size radius of circles and triangles, edge length of squares
+	 * @return number of draw calls
+	 */
+	static int drawMarkers(GraphRenderer renderer, float[] points, int count, int shape, float size, int color) {
+		renderer.setColor(color);
+		if (shape == MARKER_TRIANGLE) {
+			// all triangles in one path
+			renderer.beginPath();
+			for (int i = 0; i < count; i++) {
+				float x = points[2*i];
+				float y = points[2*i+1];
+				renderer.moveTo(x, y - size);
+				renderer.lineTo(x + size, y + size);
+				renderer.lineTo(x - size, y + size);
+				renderer.closePath();
+			}
+			renderer.fillPath();
+			return 1;
+		}
+		float half = size / 2;
+		for (int i = 0; i < count; i++) {
+			float x = points[2*i];
+			float y = points[2*i+1];
+			if (shape == MARKER_SQUARE) {
+				renderer.fillRect(x - half, y - half, x + half, y + half);
+			} else {
+				renderer.fillCircle(x, y, size);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * draws one bar per data point from the bottom edge, grouped by color: one path per color
+	 * @param barWidth fixed width of the bars, 0 to fill the column of each bar but one pixel
+	 * @param valueDependentColor color per bar, null to use color
+	 * @param scaleY height factor of all bars, for animations
+	 * @param scales height factor per bar, null to use scaleY
+	 * @return number of draw calls
+	 */
+	int drawBars(GraphRenderer renderer, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minY, double diffY, float horstart,
+			float barWidth, float maxBarWidth, int color, PrimitiveValueDependentColor valueDependentColor, float scaleY, float[] scales) {
+		float colwidth = Math.min(graphwidth / values.size(), maxBarWidth);
+		float w = barWidth > 0 ? barWidth : colwidth - 1;
+
+		bucketCount = 0;
+		int bucket = -1;
+		int directBars = 0;
+		float bottom = graphheight + border;
+		for (int i = 0; i < values.size(); i++) {
+			float valY = (float) (values.getY(i) - minY);
+			float ratY = (float) (valY / diffY);
+
+			float y = graphheight * ratY * (scales == null ? scaleY : i < scales.length ? scales[i] : 1);
+			float top = (border - y) + graphheight;
+			float left = (i * colwidth) + horstart + colwidth/2 - w/2;
+			float right = ((i * colwidth) + horstart) + colwidth/2 + w - w/2;
+
+			int barColor = valueDependentColor != null ? valueDependentColor.get(values.getX(i), values.getY(i)) : color;
+			if (bucket == -1 || bucketColors[bucket] != barColor) {
+				bucket = colorBucket(barColor);
+			}
+			if (bucket == -1) {
+				// too many colors, draw it directly
+				renderer.setColor(barColor);
+				renderer.fillRect(left, Math.min(top, bottom), right, Math.max(top, bottom));
+				directBars++;
+			} else {
+				addBar(bucket, left, Math.min(top, bottom), right, Math.max(top, bottom));
+			}
+		}
+
+		for (int i = 0; i < bucketCount; i++) {
+			float[] rects = bucketRects[i];
+			renderer.setColor(bucketColors[i]);
+			renderer.beginPath();
+			for (int j = 0; j < bucketSizes[i]; j += 4) {
+				renderer.addRect(rects[j], rects[j+1], rects[j+2], rects[j+3]);
+			}
+			renderer.fillPath();
+		}
+		return directBars + bucketCount;
+	}
+
+	/**
+	 * finds or starts the bucket of a color. The buffers are reused across frames.
+	 * @return index of the bucket, -1 if there are already MAX_COLOR_BUCKETS colors
+	 */
+	private int colorBucket(int color) {
+		for (int i = 0; i < bucketCount; i++) {
+			if (bucketColors[i] == color) {
+				return i;
+			}
+		}
+		if (bucketCount == MAX_COLOR_BUCKETS) {
+			return -1;
+		}
+		int bucket = bucketCount++;
+		bucketSizes[bucket] = 0;
+		bucketColors[bucket] = color;
+		return bucket;
+	}
+
+	private void addBar(int bucket, float left, float top, float right, float bottom) {
+		float[] rects = bucketRects[bucket];
+		int size = bucketSizes[bucket];
+		if (rects == null || rects.length < size + 4) {
+			float[] grown = new float[Math.max(64, 2*size + 4)];
+			if (rects != null) {
+				System.arraycopy(rects, 0, grown, 0, size);
+			}
+			rects = grown;
+			bucketRects[bucket] = rects;
+		}
+		rects[size] = left;
+		rects[size+1] = top;
+		rects[size+2] = right;
+		rects[size+3] = bottom;
+		bucketSizes[bucket] = size + 4;
+	}
+}
@@ -0,0 +1,102 @@
+package com.jjoe64.graphview;
+
+/**
+ * the drawing operations of a graph. GraphView draws through a {@link CanvasRenderer} on the android
+ * Canvas, {@link HeadlessGraph} draws on any renderer, e.g. the PNG and SVG renderers of the core
+ * module on a plain JVM. It has no android dependencies, like the data classes.
+ *
+ * colors are ARGB ints like those of android.graphics.Color. A renderer keeps its color, stroke width
+ * and text settings until they are set again, and draws one image at a time.
+ */
+public interface GraphRenderer {
+	int ALIGN_LEFT = 0;
+	int ALIGN_CENTER = 1;
+	int ALIGN_RIGHT = 2;
+
+	/**
+	 * color of lines, fills and text, replaces a gradient
+	 */
+	void setColor(int color);
+
+	/**
+	 * fills with a vertical gradient until the next {@link #setColor(int)}
+	 * @param top y of topColor
+	 * @param bottom y of bottomColor
+	 */
+	void setFillGradient(float top, float bottom, int topColor, int bottomColor);
+
+	/**
+	 * @param width of lines, 0 for one pixel
+	 */
+	void setStrokeWidth(float width);
+
+	void setTextSize(float size);
+
+	/**
+	 * @param align ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT, relative to x of drawText
+	 */
+	void setTextAlign(int align);
+
+	void drawLine(float startX, float startY, float stopX, float stopY);
+
+	/**
+	 * draws separate line segments
+	 * @param points x0, y0, x1, y1 of each segment
+	 * @param offset index of the first value
+	 * @param count number of values, 4 per segment
+	 */
+	void drawLines(float[] points, int offset, int count);
+
+	void fillRect(float left, float top, float right, float bottom);
+
+	void fillRoundRect(float left, float top, float right, float bottom, float radius);
+
+	void fillCircle(float cx, float cy, float radius);
+
+	/**
+	 * starts a new path, the previous one is dropped
+	 */
+	void beginPath();
+
+	void moveTo(float x, float y);
+
+	void lineTo(float x, float y);
+
+	void quadTo(float x1, float y1, float x2, float y2);
+
+	/**
+	 * adds a closed rectangle to the path
+	 */
+	void addRect(float left, float top, float right, float bottom);
+
+	void closePath();
+
+	void strokePath();
+
+	void fillPath();
+
+	/**
+	 * draws text at the baseline y, without creating a String
+	 */
+	void drawText(char[] text, int start, int length, float x, float y);
+
+	void drawText(String text, float x, float y);
+
+	float measureText(char[] text, int start, int length);
+
+	/**
+	 * @return height of a lower case letter at the current text size, the labels are placed with it
+	 */
+	float getTextHeight();
+
+	void save();
+
+	void translate(float dx, float dy);
+
+	void clipRect(float left, float top, float right, float bottom);
+
+	/**
+	 * restores translation and clip of the last {@link #save()}
+	 */
+	void restore();
+}
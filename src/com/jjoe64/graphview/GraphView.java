@@ -1,18 +1,16 @@
 package com.jjoe64.graphview;
 
-import java.text.NumberFormat;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Paint.Align;
-import android.graphics.Rect;
-import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
@@ -20,14 +18,17 @@ import android.view.animation.Interpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.LinearLayout;
 
+import com.jjoe64.graphview.BufferedLabelFormatter.DecimalLabelFormatter;
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
+import com.jjoe64.graphview.compatible.FrameScheduler;
 import com.jjoe64.graphview.compatible.ScaleGestureDetector;
+import com.jjoe64.graphview.compatible.Trace;
 import com.nineoldandroids.animation.ValueAnimator;
 import com.nineoldandroids.animation.ValueAnimator.AnimatorUpdateListener;
 
 /**
  * GraphView is a Android View for creating zoomable and scrollable graphs.
- * This is the abstract base class for all graphs. Extend this class and implement {@link #drawSeries(Canvas, GraphViewData[], float, float, float, double, double, double, double, float)} to display a custom graph.
+ * This is the abstract base class for all graphs. Extend this class and implement {@link #drawDataSeries(Canvas, GraphViewDataSet, float, float, float, double, double, double, double, float, GraphViewSeriesStyle)} to display a custom graph.
  * Use {@link LineGraphView} for creating a line chart.
  *
  * @author jjoe64 - jonas gehring - http://www.jjoe64.com
@@ -39,36 +40,266 @@ import com.nineoldandroids.animation.ValueAnimator.AnimatorUpdateListener;
 abstract public class GraphView extends LinearLayout {
 
 	static final private class GraphViewConfig {
-		static final float BORDER = 20;
-		static final float VERTICAL_LABEL_WIDTH = 100;
-		static final float HORIZONTAL_LABEL_HEIGHT = 80;
+		static final float BORDER = GraphPainter.BORDER;
+		static final float VERTICAL_LABEL_WIDTH = GraphPainter.VERTICAL_LABEL_WIDTH;
+		static final float HORIZONTAL_LABEL_HEIGHT = GraphPainter.HORIZONTAL_LABEL_HEIGHT;
+	}
+
+	/**
+	 * state that was drawn into the cached background layer
+	 */
+	static final private class BackgroundLayerKey {
+		float height;
+		float width;
+		int textHeight;
+		boolean drawGrid;
+		int gridColor;
+		int horizLabelColor;
+		int horizLabelTextSize;
+		boolean showHorizontalLabels;
+		int numVerlabels;
+		String title;
+		final LabelBuffer horlabels = new LabelBuffer();
+	}
+
+	/**
+	 * state that was drawn into the cached legend layer
+	 */
+	static final private class LegendLayerKey {
+		float height;
+		float width;
+		LegendAlign legendAlign;
+		float legendWidth;
+		int[] colors = new int[0];
+		String[] descriptions = new String[0];
 	}
 
 	private class GraphViewContentView extends View {
 
 		private float lastTouchEventX;
+
+		/**
+		 * width of the graph in the view, for the touch handling. Offscreen frames don't change it
+		 */
 		private float graphwidth;
 
 		private boolean drawGrid = true;
 		private int gridColor = Color.GRAY;
 
+		/**
+		 * cached bitmaps of the parts that don't change with the data
+		 */
+		private Bitmap backgroundLayer;
+		private Bitmap legendLayer;
+		private final BackgroundLayerKey backgroundLayerKey = new BackgroundLayerKey();
+		private final LegendLayerKey legendLayerKey = new LegendLayerKey();
+
 		public GraphViewContentView(Context context) {
 			super(context);
 		}
 
+		/**
+		 * background rendering: the render thread draws into back buffers,
+		 * a finished frame is handed over as readyFrame and shown by onDraw.
+		 * the previous front buffer is reused once the new frame was drawn on screen.
+		 */
+		private final Object frameLock = new Object();
+		private Bitmap frontFrame;
+		private Bitmap readyFrame;
+		private Bitmap spareFrame;
+		private boolean rendering;
+		private boolean renderPending;
+		private boolean frameDirty = true;
+
+		private final Runnable renderJob = new Runnable() {
+			@Override
+			public void run() {
+				renderFrame();
+			}
+		};
+
+		private final Runnable showFrame = new Runnable() {
+			@Override
+			public void run() {
+				GraphViewContentView.super.invalidate();
+				viewVerLabels.invalidate();
+			}
+		};
+
+		/**
+		 * marks the frame as dirty, in background rendering mode a new frame will be rendered
+		 */
+		@Override
+		public void invalidate() {
+			frameDirty = true;
+			super.invalidate();
+		}
 
-		private Rect textBounds = new Rect();
+		@Override
+		protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+			super.onSizeChanged(w, h, oldw, oldh);
+			frameDirty = true;
+		}
 
 		@Override
 		protected void onDraw(Canvas canvas) {
+			if (!renderOnBackgroundThread) {
+				// the list of series must not change while the frame is drawn. drawGraph only holds
+				// the lock while it copies the graph, except for graphs with custom drawing
+				synchronized (graphSeries) {
+					drawFrame(canvas, getWidth(), getHeight());
+				}
+				return;
+			}
+
+			if (frameDirty) {
+				frameDirty = false;
+				requestFrame();
+			}
+			synchronized (frameLock) {
+				if (readyFrame != null) {
+					spareFrame = frontFrame;
+					frontFrame = readyFrame;
+					readyFrame = null;
+				}
+			}
+			// the last finished frame, while the next one is prepared
+			if (frontFrame != null) {
+				canvas.drawBitmap(frontFrame, 0, 0, null);
+			}
+		}
+
+		private void requestFrame() {
+			synchronized (frameLock) {
+				if (rendering) {
+					renderPending = true;
+					return;
+				}
+				rendering = true;
+			}
+			GraphViewRenderThread.getInstance().post(renderJob);
+		}
+
+		/**
+		 * runs on the render thread
+		 */
+		private void renderFrame() {
+			int w = getWidth();
+			int h = getHeight();
+			Bitmap frame = null;
+			if (w > 0 && h > 0) {
+				synchronized (frameLock) {
+					frame = spareFrame;
+					spareFrame = null;
+				}
+				if (frame == null || frame.getWidth() != w || frame.getHeight() != h) {
+					frame = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+				} else {
+					frame.eraseColor(Color.TRANSPARENT);
+				}
+
+				// the list of series must not change while the frame is drawn, the data is read from snapshots
+				synchronized (graphSeries) {
+					drawFrame(new Canvas(frame), w, h);
+				}
+			}
+
+			boolean again;
+			synchronized (frameLock) {
+				if (frame != null) {
+					readyFrame = frame;
+				}
+				again = renderPending;
+				renderPending = false;
+				rendering = again;
+			}
+			post(showFrame);
+			if (again) {
+				GraphViewRenderThread.getInstance().post(renderJob);
+			}
+		}
+
+		/**
+		 * releases the buffers of the background rendering
+		 */
+		private void releaseFrames() {
+			synchronized (frameLock) {
+				frontFrame = readyFrame = spareFrame = null;
+			}
+		}
+
+		/**
+		 * draws the complete graph: grid, labels, series and legend
+		 */
+		private void drawFrame(Canvas canvas, int viewWidth, int viewHeight) {
+			FrameMetrics metrics = frameMetricsListener != null || showDebugOverlay ? frameMetrics : null;
+			beginFrame();
+			if (metrics != null) {
+				metrics.beginFrame(graphSeries.size());
+				Trace.beginSection("GraphView frame");
+			}
+			currentMetrics = metrics;
+			try {
+				drawFrameContent(canvas, viewWidth, viewHeight, false);
+			} finally {
+				currentMetrics = null;
+				endFrame();
+				if (metrics != null) {
+					Trace.endSection();
+				}
+			}
+
+			if (metrics != null) {
+				metrics.endFrame();
+				if (showDebugOverlay) {
+					if (debugOverlay == null) {
+						debugOverlay = new DebugOverlay(horizLabelTextSize);
+					}
+					debugOverlay.draw(canvas, metrics);
+				}
+				FrameMetricsListener listener = frameMetricsListener;
+				if (listener != null) {
+					listener.onFrame(metrics);
+				}
+			}
+		}
+
+		/**
+		 * draws the vertical labels and the graph right of them, see {@link GraphView#drawGraph(Canvas, int, int)}
+		 */
+		private void drawOffscreen(Canvas canvas, int width, int height) {
+			beginFrame();
+			try {
+				GraphRenderer renderer = getRenderer(canvas);
+				int textHeight = measureHorizontalLabels(renderer);
+				float graphheight = height - (2 * GraphViewConfig.BORDER) - textHeight;
+
+				int labelsWidth = fillVerlabels(offscreenVerlabels, graphheight) + vertLabelPadding;
+				GraphPainter.drawVerlabels(renderer, offscreenVerlabels, labelsWidth - vertLabelPadding, graphheight, vertLabelTextSize, vertLabelColor);
+
+				canvas.save();
+				canvas.translate(labelsWidth, 0);
+				// the points just outside of the viewport must not be drawn over the labels
+				canvas.clipRect(0, 0, width - labelsWidth, height);
+				drawFrameContent(canvas, width - labelsWidth, height, true);
+				canvas.restore();
+			} finally {
+				endFrame();
+			}
+		}
+
+		/**
+		 * @param offscreen true to draw with the offscreen labels and without the cached layers
+		 */
+		private void drawFrameContent(Canvas canvas, int viewWidth, int viewHeight, boolean offscreen) {
 
 			paint.setAntiAlias(true);
 			paint.setStrokeWidth(0);
 
 			float border = GraphViewConfig.BORDER;
 			float horstart = 0;
-			float height = getHeight();
-			float width = getWidth() - 1;
+			float height = viewHeight;
+			float width = viewWidth - 1;
 			double maxY = getMaxY();
 			double minY = getMinY();
 			double maxX = getMaxX(false);
@@ -76,58 +307,57 @@ abstract public class GraphView extends LinearLayout {
 			double diffX = maxX - minX;
 
 			// measure bottom text
-			int textHeight = 0;
-			if (showHorizontalLabels) {
-				paint.setTextSize(horizLabelTextSize);
-				paint.getTextBounds("a", 0, 1, textBounds);
-				textHeight = (int) (textBounds.height() + horizLabelPadding);
-			}
+			int textHeight = measureHorizontalLabels(getRenderer(canvas));
 
 			float graphheight = height - (2 * border) - textHeight;
-			graphwidth = width;
+			float graphwidth = width;
+			if (!offscreen) {
+				this.graphwidth = graphwidth;
+			}
 
+			// offscreen frames are not measured
+			FrameMetrics metrics = currentMetrics;
+			long phaseStart = metrics != null ? beginPhase("GraphView labels") : 0;
+
+			// local copies, the fields may be reset by the ui thread while rendering in background
+			LabelBuffer horlabels = GraphView.this.horlabels;
+			LabelBuffer verlabels = GraphView.this.verlabels;
+			if (offscreen) {
+				// generated for this size, the labels of the view stay untouched
+				horlabels = offscreenHorlabels;
+				fillHorlabels(horlabels, graphwidth);
+				verlabels = offscreenVerlabels;
+			}
 			if (horlabels == null) {
 				horlabels = generateHorlabels(graphwidth);
+				GraphView.this.horlabels = horlabels;
 			}
 			if (verlabels == null) {
 				verlabels = generateVerlabels(graphheight);
+				GraphView.this.verlabels = verlabels;
 			}
 
-			if (drawGrid) {
-
-				// vertical lines
-				paint.setTextAlign(Align.LEFT);
-				paint.setColor(gridColor);
-
-				int vers = verlabels.length - 1;
-				for (int i = 0; i < verlabels.length; i++) {
-					float y = ((graphheight / vers) * i) + border;
-					canvas.drawLine(horstart, y, width, y, paint);
-				}
-
-				// horizontal labels + lines
-				int hors = horlabels.length - 1;
-				for (int i = 0; i < horlabels.length; i++) {
-					float x = ((graphwidth / hors) * i) + horstart;
-					canvas.drawLine(x, height - border - textHeight/2, x, border, paint);
-
-					if (showHorizontalLabels) {
-						paint.setTextAlign(Align.CENTER);
-						if (i==horlabels.length-1)
-							paint.setTextAlign(Align.RIGHT);
-						if (i==0)
-							paint.setTextAlign(Align.LEFT);
-
-						paint.setColor(horizLabelColor);
-						canvas.drawText(horlabels[i], x, height - (textBounds.height() >> 1), paint); // TODO measure text
-						paint.setColor(gridColor);
+			if (metrics != null) {
+				endPhase(metrics, FrameMetrics.PHASE_LABELS, phaseStart);
+				phaseStart = beginPhase("GraphView grid");
+			}
+			if (cacheStaticLayers && !offscreen) {
+				if (isBackgroundLayerInvalid(height, width, textHeight, horlabels, verlabels)) {
+					backgroundLayer = prepareLayer(backgroundLayer, viewWidth, viewHeight);
+					if (backgroundLayer != null) {
+						drawBackgroundLayer(getRenderer(new Canvas(backgroundLayer)), border, horstart, height, width, graphheight, textHeight, horlabels, verlabels);
 					}
 				}
+				if (backgroundLayer != null) {
+					canvas.drawBitmap(backgroundLayer, 0, 0, null);
+					countDrawCalls(1);
+				}
+			} else {
+				drawBackgroundLayer(getRenderer(canvas), border, horstart, height, width, graphheight, textHeight, horlabels, verlabels);
 			}
-
-			if (title != null) {
-				paint.setTextAlign(Align.CENTER);
-				canvas.drawText(title, (graphwidth / 2) + horstart, border - 4, paint);
+			if (metrics != null) {
+				endPhase(metrics, FrameMetrics.PHASE_GRID, phaseStart);
+				phaseStart = beginPhase("GraphView series");
 			}
 
 			if (maxY == minY) {
@@ -141,11 +371,150 @@ abstract public class GraphView extends LinearLayout {
 
 			drawSeries(canvas, border, horstart, minY, minX, diffX, graphheight, graphwidth, diffY);
 
-			if (showLegend) drawLegend(canvas, height, width);
+			if (metrics != null) {
+				endPhase(metrics, FrameMetrics.PHASE_SERIES, phaseStart);
+			}
+			if (showLegend) {
+				if (metrics != null) {
+					phaseStart = beginPhase("GraphView legend");
+				}
+				if (cacheStaticLayers && !offscreen) {
+					if (isLegendLayerInvalid(height, width)) {
+						legendLayer = prepareLayer(legendLayer, viewWidth, viewHeight);
+						if (legendLayer != null) {
+							drawLegend(new Canvas(legendLayer), height, width);
+						}
+					}
+					if (legendLayer != null) {
+						canvas.drawBitmap(legendLayer, 0, 0, null);
+						countDrawCalls(1);
+					}
+				} else {
+					drawLegend(canvas, height, width);
+				}
+				if (metrics != null) {
+					endPhase(metrics, FrameMetrics.PHASE_LEGEND, phaseStart);
+				}
+			}
+		}
+
+		/**
+		 * grid, horizontal labels and title
+		 */
+		private void drawBackgroundLayer(GraphRenderer renderer, float border, float horstart, float height, float width, float graphheight, int textHeight, LabelBuffer horlabels, LabelBuffer verlabels) {
+			countDrawCalls(GraphPainter.drawBackground(renderer, border, horstart, height, width, graphheight, textHeight, horlabels, verlabels.size(),
+					drawGrid, gridColor, showHorizontalLabels, horizLabelColor, horizLabelTextSize, title));
+		}
+
+		/**
+		 * returns a cleared bitmap with the size of this view.
+		 * the given bitmap is reused if it has the right size, otherwise it is recreated.
+		 * @return null if the view has no size
+		 */
+		private Bitmap prepareLayer(Bitmap layer, int w, int h) {
+			if (w <= 0 || h <= 0) {
+				return null;
+			}
+			if (layer == null || layer.getWidth() != w || layer.getHeight() != h) {
+				layer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+			} else {
+				layer.eraseColor(Color.TRANSPARENT);
+			}
+			return layer;
+		}
+
+		/**
+		 * compares everything that is drawn into the background layer with the state of the cached bitmap
+		 */
+		private boolean isBackgroundLayerInvalid(float height, float width, int textHeight, LabelBuffer horlabels, LabelBuffer verlabels) {
+			boolean invalid = backgroundLayer == null
+					|| backgroundLayerKey.height != height
+					|| backgroundLayerKey.width != width
+					|| backgroundLayerKey.textHeight != textHeight
+					|| backgroundLayerKey.drawGrid != drawGrid
+					|| backgroundLayerKey.gridColor != gridColor
+					|| backgroundLayerKey.horizLabelColor != horizLabelColor
+					|| backgroundLayerKey.horizLabelTextSize != horizLabelTextSize
+					|| backgroundLayerKey.showHorizontalLabels != showHorizontalLabels
+					|| backgroundLayerKey.numVerlabels != verlabels.size()
+					|| !equals(backgroundLayerKey.title, title)
+					|| !backgroundLayerKey.horlabels.contentEquals(horlabels);
+			if (invalid) {
+				backgroundLayerKey.height = height;
+				backgroundLayerKey.width = width;
+				backgroundLayerKey.textHeight = textHeight;
+				backgroundLayerKey.drawGrid = drawGrid;
+				backgroundLayerKey.gridColor = gridColor;
+				backgroundLayerKey.horizLabelColor = horizLabelColor;
+				backgroundLayerKey.horizLabelTextSize = horizLabelTextSize;
+				backgroundLayerKey.showHorizontalLabels = showHorizontalLabels;
+				backgroundLayerKey.numVerlabels = verlabels.size();
+				backgroundLayerKey.title = title;
+				backgroundLayerKey.horlabels.set(horlabels);
+			}
+			return invalid;
+		}
+
+		/**
+		 * compares everything that is drawn into the legend layer with the state of the cached bitmap
+		 */
+		private boolean isLegendLayerInvalid(float height, float width) {
+			int count = graphSeries.size();
+			boolean invalid = legendLayer == null
+					|| legendLayerKey.height != height
+					|| legendLayerKey.width != width
+					|| legendLayerKey.legendAlign != legendAlign
+					|| legendLayerKey.legendWidth != legendWidth
+					|| legendLayerKey.colors.length != count;
+			for (int i=0; !invalid && i<count; i++) {
+				GraphViewSeries series = graphSeries.get(i);
+				invalid = legendLayerKey.colors[i] != series.getStyle().color
+						|| !equals(legendLayerKey.descriptions[i], series.description);
+			}
+			if (invalid) {
+				legendLayerKey.height = height;
+				legendLayerKey.width = width;
+				legendLayerKey.legendAlign = legendAlign;
+				legendLayerKey.legendWidth = legendWidth;
+				if (legendLayerKey.colors.length != count) {
+					legendLayerKey.colors = new int[count];
+					legendLayerKey.descriptions = new String[count];
+				}
+				for (int i=0; i<count; i++) {
+					legendLayerKey.colors[i] = graphSeries.get(i).getStyle().color;
+					legendLayerKey.descriptions[i] = graphSeries.get(i).description;
+				}
+			}
+			return invalid;
+		}
+
+		/**
+		 * frees the cached bitmaps
+		 */
+		private void releaseLayers() {
+			// not recycled, the render thread might still draw them
+			backgroundLayer = null;
+			legendLayer = null;
+		}
+
+		private boolean equals(String a, String b) {
+			return a == null ? b == null : a.equals(b);
 		}
 
+		/**
+		 * the scroll delta is collected and applied once on the next frame
+		 */
 		private void onMoveGesture(float f) {
-			// view port update
+			synchronized (pendingFrameLock) {
+				pendingScroll += f;
+			}
+			scheduleFrame();
+		}
+
+		/**
+		 * view port update, called on the next frame with the sum of the scroll deltas
+		 */
+		private void applyMoveGesture(float f) {
 			if (viewportSize != 0) {
 				viewportStart -= f*viewportSize/graphwidth;
 
@@ -161,9 +530,7 @@ abstract public class GraphView extends LinearLayout {
 				// labels have to be regenerated
 				horlabels = null;
 				verlabels = null;
-				viewVerLabels.invalidate();
 			}
-			invalidate();
 		}
 
 		/**
@@ -198,7 +565,7 @@ abstract public class GraphView extends LinearLayout {
 					handled = true;
 				}
 				if (handled)
-					invalidate();
+					scheduleFrame();
 			}
 			return handled;
 		}
@@ -230,8 +597,10 @@ abstract public class GraphView extends LinearLayout {
 
 	private class VerLabelsView extends View {
 
-		private Rect textBounds = new Rect();
-		private Rect vertTextBounds = new Rect();
+		/**
+		 * not the shared renderer, the graph may be drawn on another thread at the same time
+		 */
+		private final CanvasRenderer labelRenderer = new CanvasRenderer();
 
 		/**
 		 * @param context
@@ -243,46 +612,65 @@ abstract public class GraphView extends LinearLayout {
 
 		@Override
 		protected void onDraw(Canvas canvas) {
+			CanvasRenderer renderer = labelRenderer;
+			renderer.setCanvas(canvas);
+			LabelBuffer verlabels = GraphView.this.verlabels;
 
-			// normal
-			paint.setStrokeWidth(0);
-
-			float border = GraphViewConfig.BORDER;
 			float height = getHeight();
 
-			int textHeight = 0;
-			if (showHorizontalLabels) {
-				paint.getTextBounds("a", 0, 1, textBounds);
-				textHeight = (int) (textBounds.height() + horizLabelPadding);
-			}
-
+			// the same text size as the horizontal labels of the graph, so the labels line up
+			int textHeight = measureHorizontalLabels(renderer);
 
-			float graphheight = height - (2 * border) - textHeight;
+			float graphheight = height - (2 * GraphViewConfig.BORDER) - textHeight;
 
 			if (verlabels == null) {
-				verlabels = generateVerlabels(graphheight);
+				if (renderOnBackgroundThread) {
+					// the render thread generates them and redraws this view
+					return;
+				}
+				// the viewport cache is shared with drawGraph and toHeadlessGraph on other threads
+				synchronized (graphSeries) {
+					verlabels = generateVerlabels(graphheight);
+				}
+				GraphView.this.verlabels = verlabels;
 			}
 
-			// vertical labels
-			paint.setTextAlign(Align.RIGHT);
-			paint.setTextSize(vertLabelTextSize);
-			paint.getTextBounds("a", 0, 1, vertTextBounds);
-			int vers = verlabels.length - 1;
-			
-			for (int i = 0; i < verlabels.length; i++) {
-				float y = ((graphheight / vers) * i) + border + (vertTextBounds.height() / 2);
-				paint.setColor(vertLabelColor);
-				canvas.drawText(verlabels[i], getWidth() - vertLabelPadding, y, paint);
+			// the render thread may reuse the buffer for new labels
+			synchronized (verlabels) {
+				GraphPainter.drawVerlabels(renderer, verlabels, getWidth() - vertLabelPadding, graphheight, vertLabelTextSize, vertLabelColor);
 			}
-			
 		}
 
 	}
 
 	protected Paint paint = new Paint();
 
-	private String[] horlabels;
-	private String[] verlabels;
+	/**
+	 * draws on the canvas of the current frame, guarded by the lock of graphSeries like the paint
+	 */
+	private final CanvasRenderer canvasRenderer = new CanvasRenderer();
+	final GraphPainter painter = new GraphPainter();
+
+	/**
+	 * the current labels, null if they have to be generated.
+	 * generated labels are written alternately into two buffers per axis, so the labels that are
+	 * shown stay valid while the next ones are generated.
+	 */
+	private volatile LabelBuffer horlabels;
+	private volatile LabelBuffer verlabels;
+	private final LabelBuffer[] horlabelBuffers = {new LabelBuffer(), new LabelBuffer()};
+	private final LabelBuffer[] verlabelBuffers = {new LabelBuffer(), new LabelBuffer()};
+
+	/**
+	 * measures the vertical labels, guarded by the lock of the GraphView
+	 */
+	private final Paint verlabelMeasurePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+	/**
+	 * labels of {@link #drawGraph(Canvas, int, int)}, which may have another size than the view
+	 */
+	private final LabelBuffer offscreenHorlabels = new LabelBuffer();
+	private final LabelBuffer offscreenVerlabels = new LabelBuffer();
 
 	public static final int AUTO = 0;
 
@@ -290,12 +678,32 @@ abstract public class GraphView extends LinearLayout {
 
 	private String title;
 	private boolean scrollable;
-	private double viewportStart;
-	private double viewportSize;
+	private volatile double viewportStart;
+	private volatile double viewportSize;
 	private View viewVerLabels;
 	private ScaleGestureDetector scaleDetector;
 	private boolean scalable;
 	protected List<GraphViewSeries> graphSeries = new ArrayList<GraphViewSeries>();
+	private SeriesSnapshot.SubSet[] viewportValues = new SeriesSnapshot.SubSet[0];
+
+	/**
+	 * the snapshots of the series that are drawn in the current frame, see {@link #beginFrame()}
+	 */
+	private SeriesSnapshot[] frameSnapshots = new SeriesSnapshot[0];
+	private volatile Thread frameThread;
+
+	/**
+	 * metrics are collected while a listener is set or the debug overlay is shown,
+	 * currentMetrics is only set while a frame of the view is drawn
+	 */
+	private volatile FrameMetricsListener frameMetricsListener;
+	private volatile boolean showDebugOverlay;
+	private final FrameMetrics frameMetrics = new FrameMetrics();
+	private FrameMetrics currentMetrics;
+	private DebugOverlay debugOverlay;
+	private Decimator decimator;
+	private GraphViewDataBuffer[] decimatedValues = new GraphViewDataBuffer[0];
+	private GraphViewDataBuffer[] levelOfDetailValues = new GraphViewDataBuffer[0];
 	private boolean showLegend = false;
 	private float legendWidth = 120;
 	private LegendAlign legendAlign = LegendAlign.MIDDLE;
@@ -318,11 +726,41 @@ abstract public class GraphView extends LinearLayout {
 
 	private int horizLabelTextSize;
 	private int vertLabelTextSize;
+
+	/**
+	 * current width of the vertical labels view and the steps it changes in, see {@link #generateVerlabels(float)}
+	 */
+	private int vertLabelsWidth = -1;
+	private int vertLabelWidthStep;
 	private ValueAnimator anim;
 	private long animDuration;
 	private Interpolator interpolator = new OvershootInterpolator();
 
 	private boolean showHorizontalLabels = true;
+	private boolean cacheStaticLayers = true;
+	private volatile boolean renderOnBackgroundThread;
+
+	/**
+	 * changes that are applied once on the next frame, guarded by pendingFrameLock
+	 */
+	private final Object pendingFrameLock = new Object();
+	private FrameScheduler frameScheduler;
+	private boolean frameScheduled;
+	private float pendingScroll;
+	private boolean pendingScrollToEnd;
+	private boolean pendingRedraw;
+
+	/**
+	 * the viewport that the paged series were asked to load last, guarded by pendingFrameLock
+	 */
+	private double requestedViewportStart = Double.NaN;
+	private double requestedViewportSize = Double.NaN;
+
+	/**
+	 * colors and descriptions of the series for the legend
+	 */
+	private int[] legendColors = new int[0];
+	private String[] legendDescriptions = new String[0];
 
 	public GraphView(Context context) {
 		super(context);
@@ -347,10 +785,17 @@ abstract public class GraphView extends LinearLayout {
 		// defaults
 		horizLabelPadding = vertLabelPadding = (int) (8 * getResources().getDisplayMetrics().density);
 		horizLabelTextSize = vertLabelTextSize = (int) (14 * getResources().getDisplayMetrics().density);
+		vertLabelWidthStep = (int) Math.max(1, 8 * getResources().getDisplayMetrics().density);
 		numVertLabels = numHorizLabels = AUTO;
 
 		viewVerLabels = new VerLabelsView(context);
 		graphContentView = new GraphViewContentView(context);
+		frameScheduler = new FrameScheduler(new Runnable() {
+			@Override
+			public void run() {
+				doFrame();
+			}
+		});
 
 		addView(viewVerLabels);
 		addView(graphContentView, new LayoutParams(0, LayoutParams.MATCH_PARENT, 1));
@@ -409,6 +854,19 @@ abstract public class GraphView extends LinearLayout {
 		this.title = title;
 	}
 
+	/**
+	 * reduces the drawn data points to about 2 points per pixel.
+	 * it is applied to the data inside the viewport, before drawing.
+	 * @param decimator e.g. {@link Decimator.MinMaxDecimator} or {@link Decimator.LargestTriangleThreeBucketsDecimator}. null = draw all data (default)
+	 */
+	public void setDecimator(Decimator decimator) {
+		this.decimator = decimator;
+	}
+
+	public Decimator getDecimator() {
+		return decimator;
+	}
+
 	public void setDrawGrid(boolean drawGrid) {
 		graphContentView.setDrawGrid(drawGrid);
 	}
@@ -441,30 +899,195 @@ abstract public class GraphView extends LinearLayout {
 		this.numHorizLabels = numHorizLabels;
 	}
 
-	protected GraphViewData[] _values(int idxSeries) {
-		GraphViewData[] values = graphSeries.get(idxSeries).values;
+	/**
+	 * returns the data of a series that is inside the viewport (plus one point on each side).
+	 * the result is a view on the series data, it is resolved via binary search and cached
+	 * until the viewport or the data changes, so it can be called several times per frame.
+	 * @param idxSeries
+	 */
+	protected GraphViewDataSet _values(int idxSeries) {
 		if (viewportStart == 0 && viewportSize == 0) {
 			// all data
-			return values;
+			return snapshot(idxSeries);
 		} else {
 			// viewport
-			List<GraphViewData> listData = new ArrayList<GraphViewData>();
-			for (int i=0; i<values.length; i++) {
-				if (values[i].valueX >= viewportStart) {
-					if (values[i].valueX > viewportStart+viewportSize) {
-						listData.add(values[i]); // one more for nice scrolling
-						break;
-					} else {
-						listData.add(values[i]);
-					}
-				} else {
-					if (listData.isEmpty()) {
-						listData.add(values[i]);
-					}
-					listData.set(0, values[i]); // one before, for nice scrolling
-				}
+			return viewportValues(idxSeries);
+		}
+	}
+
+	private SeriesSnapshot.SubSet viewportValues(int idxSeries) {
+		if (viewportValues.length != graphSeries.size()) {
+			viewportValues = new SeriesSnapshot.SubSet[graphSeries.size()];
+		}
+		SeriesSnapshot.SubSet values = viewportValues[idxSeries];
+		if (values == null) {
+			values = new SeriesSnapshot.SubSet();
+			viewportValues[idxSeries] = values;
+		}
+		values.update(snapshot(idxSeries), viewportStart, viewportStart+viewportSize);
+		return values;
+	}
+
+	/**
+	 * takes one snapshot of every series, all data of the frame is read from them.
+	 * so producers can append data on other threads while the frame is drawn.
+	 */
+	private void beginFrame() {
+		int count = graphSeries.size();
+		if (frameSnapshots.length != count) {
+			frameSnapshots = new SeriesSnapshot[count];
+		}
+		for (int i=0; i<count; i++) {
+			frameSnapshots[i] = graphSeries.get(i).snapshot();
+		}
+		frameThread = Thread.currentThread();
+	}
+
+	private void endFrame() {
+		frameThread = null;
+		// old snapshots may hold superseded mappings of a file-backed series
+		Arrays.fill(frameSnapshots, null);
+	}
+
+	private static long beginPhase(String sectionName) {
+		Trace.beginSection(sectionName);
+		return System.nanoTime();
+	}
+
+	private static void endPhase(FrameMetrics metrics, int phase, long start) {
+		metrics.addPhase(phase, System.nanoTime() - start);
+		Trace.endSection();
+	}
+
+	/**
+	 * adds draw calls to the metrics of the current frame, if metrics are collected.
+	 * graphs with custom drawing call it for their canvas calls.
+	 * @param count
+	 */
+	protected void countDrawCalls(int count) {
+		FrameMetrics metrics = currentMetrics;
+		if (metrics != null) {
+			metrics.addDrawCalls(count);
+		}
+	}
+
+	/**
+	 * starts measuring the drawing of one series. Graphs that override drawSeries call it for
+	 * each series, together with {@link #endSeriesMetrics(int, long, int, int)}.
+	 * @return start time, 0 if no metrics are collected
+	 */
+	protected long beginSeriesMetrics() {
+		return currentMetrics != null ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * records the time since {@link #beginSeriesMetrics()} and the points of a series in the
+	 * metrics of the current frame, if metrics are collected.
+	 * @param idxSeries
+	 * @param start the result of beginSeriesMetrics
+	 * @param pointsInViewport
+	 * @param pointsDrawn points handed to drawDataSeries
+	 */
+	protected void endSeriesMetrics(int idxSeries, long start, int pointsInViewport, int pointsDrawn) {
+		FrameMetrics metrics = currentMetrics;
+		if (metrics != null) {
+			metrics.setSeries(idxSeries, System.nanoTime() - start, pointsInViewport, pointsDrawn);
+		}
+	}
+
+	private void countLabelsWithoutAllocation(int count) {
+		FrameMetrics metrics = currentMetrics;
+		if (metrics != null) {
+			metrics.addLabelsWithoutAllocation(count);
+		}
+	}
+
+	/**
+	 * the listener gets the metrics of every frame: time per phase, points per series and draw calls.
+	 * while metrics are collected, the phases are also written as android.os.Trace sections (Android 4.3+).
+	 * @param frameMetricsListener null to stop collecting metrics
+	 */
+	public void setFrameMetricsListener(FrameMetricsListener frameMetricsListener) {
+		this.frameMetricsListener = frameMetricsListener;
+	}
+
+	public FrameMetricsListener getFrameMetricsListener() {
+		return frameMetricsListener;
+	}
+
+	/**
+	 * shows frame rate, phase times and points per series on top of the graph.
+	 * collects the same metrics as {@link #setFrameMetricsListener(FrameMetricsListener)}.
+	 * @param showDebugOverlay
+	 */
+	public void setShowDebugOverlay(boolean showDebugOverlay) {
+		this.showDebugOverlay = showDebugOverlay;
+		redrawAll();
+	}
+
+	public boolean isShowDebugOverlay() {
+		return showDebugOverlay;
+	}
+
+	/**
+	 * returns the snapshot of the current frame if called while drawing, otherwise the latest one
+	 * @param idxSeries
+	 */
+	protected SeriesSnapshot snapshot(int idxSeries) {
+		if (frameThread == Thread.currentThread()) {
+			return frameSnapshots[idxSeries];
+		}
+		return graphSeries.get(idxSeries).snapshot();
+	}
+
+	/**
+	 * returns the smallest y value of a series inside the current viewport
+	 * (including the one point on each side that is drawn for nice scrolling).
+	 * @param series a series of this graph
+	 * @return the smallest visible y value, NaN if no data is visible
+	 */
+	public double getVisibleMinY(GraphViewSeries series) {
+		return getVisibleY(series, false);
+	}
+
+	/**
+	 * returns the largest y value of a series inside the current viewport
+	 * (including the one point on each side that is drawn for nice scrolling).
+	 * @param series a series of this graph
+	 * @return the largest visible y value, NaN if no data is visible
+	 */
+	public double getVisibleMaxY(GraphViewSeries series) {
+		return getVisibleY(series, true);
+	}
+
+	private double getVisibleY(GraphViewSeries series, boolean largest) {
+		int idxSeries = graphSeries.indexOf(series);
+		if (idxSeries == -1) {
+			throw new IllegalArgumentException("The series was not added to this GraphView.");
+		}
+		if (renderOnBackgroundThread && !GraphViewRenderThread.isCurrentThread()) {
+			// the cached views belong to the render thread
+			SeriesSnapshot snapshot = series.snapshot();
+			if (viewportStart == 0 && viewportSize == 0) {
+				return largest ? snapshot.getMaxY(0, snapshot.size()) : snapshot.getMinY(0, snapshot.size());
 			}
-			return listData.toArray(new GraphViewData[listData.size()]);
+			SeriesSnapshot.SubSet values = new SeriesSnapshot.SubSet();
+			values.update(snapshot, viewportStart, viewportStart+viewportSize);
+			return largest ? values.getMaxY() : values.getMinY();
+		}
+		return visibleY(idxSeries, largest);
+	}
+
+	/**
+	 * O(log n) via the min/max index of the series
+	 */
+	private double visibleY(int idxSeries, boolean largest) {
+		if (viewportStart == 0 && viewportSize == 0) {
+			SeriesSnapshot snapshot = snapshot(idxSeries);
+			return largest ? snapshot.getMaxY(0, snapshot.size()) : snapshot.getMinY(0, snapshot.size());
+		} else {
+			SeriesSnapshot.SubSet values = viewportValues(idxSeries);
+			return largest ? values.getMaxY() : values.getMinY();
 		}
 	}
 
@@ -477,97 +1100,443 @@ abstract public class GraphView extends LinearLayout {
 			series.setStyle(new GraphViewSeriesStyle(defaultColor, 3));
 		}
 
-		graphSeries.add(series);
+		synchronized (graphSeries) {
+			graphSeries.add(series);
+		}
+		series.requestData(viewportStart, viewportSize, 0);
 	}
 
-	protected void drawLegend(Canvas canvas, float height, float width) {
-		int shapeSize = 15;
-
-		// rect
-		paint.setARGB(180, 100, 100, 100);
-		float legendHeight = (shapeSize+5)*graphSeries.size() +5;
-		float lLeft = width-legendWidth - 10;
-		float lTop;
-		switch (legendAlign) {
-		case TOP:
-			lTop = 10;
-			break;
-		case MIDDLE:
-			lTop = height/2 - legendHeight/2;
-			break;
-		default:
-			lTop = height - GraphViewConfig.BORDER - legendHeight -10;
-		}
-		float lRight = lLeft+legendWidth;
-		float lBottom = lTop+legendHeight;
-		canvas.drawRoundRect(new RectF(lLeft, lTop, lRight, lBottom), 8, 8, paint);
+	/**
+	 * draws the graph on a background thread that is shared by all graphs, so dense series don't block
+	 * the ui thread. The last finished frame is shown while the next one is rendered, labels, legend
+	 * and touch handling work the same as in the default mode.
+	 * every frame draws snapshots of the series, so data can be appended while a frame is rendered.
+	 * @param renderOnBackgroundThread false (default) to draw on the ui thread in onDraw
+	 */
+	public void setRenderOnBackgroundThread(boolean renderOnBackgroundThread) {
+		this.renderOnBackgroundThread = renderOnBackgroundThread;
+		if (!renderOnBackgroundThread) {
+			graphContentView.releaseFrames();
+		}
+		redrawAll();
+	}
+
+	public boolean isRenderOnBackgroundThread() {
+		return renderOnBackgroundThread;
+	}
+
+	/**
+	 * draws the complete graph with vertical labels, title and legend in the given size,
+	 * independent of the size of the view. The view does not have to be attached to a window,
+	 * so reports can be rendered without showing them.
+	 * can be called on any thread. The graph is copied with snapshots of the series first, see
+	 * {@link #toHeadlessGraph()}, and drawn from the copy, so the view only waits for the copy and
+	 * several renders of the same graph run in parallel.
+	 * graphs with custom drawing share the paint and the caches of the view, they are drawn with
+	 * the lock of the view like its frames.
+	 * @param canvas
+	 * @param width
+	 * @param height
+	 */
+	public void drawGraph(Canvas canvas, int width, int height) {
+		HeadlessGraph graph = toHeadlessGraph();
+		if (graph != null) {
+			// own state and snapshots of the data, no lock needed
+			graph.draw(new CanvasRenderer(canvas), width, height);
+			return;
+		}
+		synchronized (graphSeries) {
+			graphContentView.drawOffscreen(canvas, width, height);
+		}
+	}
+
+	/**
+	 * copies the settings and snapshots of the series into a graph without a view, that draws on any
+	 * {@link GraphRenderer}: on a Canvas, or on a plain JVM as PNG or SVG with the renderers of the core module.
+	 * can be called on any thread, the headless graph can be drawn on several threads at the same time.
+	 * an override of {@link #formatLabel(double, boolean)} is called by the threads that draw it.
+	 * @return null if the graph only draws on a Canvas, e.g. a custom subclass of GraphView
+	 */
+	public HeadlessGraph toHeadlessGraph() {
+		synchronized (graphSeries) {
+			return createHeadlessGraph();
+		}
+	}
+
+	/**
+	 * called with the lock of graphSeries. Graphs return their headless version, filled with
+	 * {@link #copyTo(HeadlessGraph)}. Animations are not copied.
+	 * @return null (default) if the graph only draws on a Canvas, then drawGraph draws it like the view
+	 */
+	protected HeadlessGraph createHeadlessGraph() {
+		return null;
+	}
 
+	/**
+	 * copies the settings of the graph and a snapshot of every series, called with the lock of graphSeries
+	 */
+	protected void copyTo(HeadlessGraph graph) {
 		for (int i=0; i<graphSeries.size(); i++) {
-			paint.setColor(graphSeries.get(i).getStyle().color);
-			canvas.drawRect(new RectF(lLeft+5, lTop+5+(i*(shapeSize+5)), lLeft+5+shapeSize, lTop+((i+1)*(shapeSize+5))), paint);
-			if (graphSeries.get(i).description != null) {
-				paint.setColor(Color.WHITE);
-				paint.setTextAlign(Align.LEFT);
-				canvas.drawText(graphSeries.get(i).description, lLeft+5+shapeSize+5, lTop+shapeSize+(i*(shapeSize+5)), paint);
+			GraphViewSeries series = graphSeries.get(i);
+			GraphViewSeriesStyle style = series.getStyle();
+			graph.addSeries(series.snapshot(), style.color, style.thickness, series.description, primitiveValueDependentColor(style));
+		}
+		graph.setTitle(title);
+		graph.setViewPort(viewportStart, viewportSize);
+		graph.setManualYAxis(manualYAxis);
+		if (manualYAxis) {
+			graph.setManualYAxisBounds(manualMinYValue, manualMaxYValue);
+		}
+		graph.setDecimator(decimator);
+		graph.setVerticalLabelFormatter(headlessLabelFormatter(verticalLabelFormatter, false));
+		graph.setHorizontalLabelFormatter(headlessLabelFormatter(horizontalLabelFormatter, true));
+		graph.setNumVertLabels(numVertLabels);
+		graph.setNumHorizLabels(numHorizLabels);
+		graph.setDrawGrid(graphContentView.drawGrid);
+		graph.setGridColor(graphContentView.gridColor);
+		graph.setVertLabelColor(vertLabelColor);
+		graph.setHorizLabelColor(horizLabelColor);
+		graph.setVertLabelTextSize(vertLabelTextSize);
+		graph.setHorizLabelTextSize(horizLabelTextSize);
+		graph.setVertLabelPadding(vertLabelPadding);
+		graph.setHorizLabelPadding(horizLabelPadding);
+		graph.setShowVerticalLabels(viewVerLabels.getVisibility() == View.VISIBLE);
+		graph.setShowHorizontalLabels(showHorizontalLabels);
+		graph.setShowLegend(showLegend);
+		graph.setLegendAlign(legendAlign.ordinal());
+		graph.setLegendWidth(legendWidth);
+	}
+
+	/**
+	 * @return the formatter of an axis for the headless graph, formatLabel overrides are called through an adapter
+	 */
+	private LabelFormatter headlessLabelFormatter(LabelFormatter labelFormatter, boolean isValueX) {
+		if (labelFormatter != null || !formatLabelOverridden) {
+			return labelFormatter;
+		}
+		// prepares the default formatter of the range, the override may call super.formatLabel
+		return isValueX ? labelFormatter(null, true, getMinX(false), getMaxX(false)) : labelFormatter(null, false, getMinY(), getMaxY());
+	}
+
+	/**
+	 * @return the value dependent color of the style, a {@link ValueDependentColor} is adapted. null if it has none
+	 */
+	static PrimitiveValueDependentColor primitiveValueDependentColor(GraphViewSeriesStyle style) {
+		if (style.getPrimitiveValueDependentColor() != null) {
+			return style.getPrimitiveValueDependentColor();
+		}
+		final ValueDependentColor valueDependentColor = style.getValueDependentColor();
+		if (valueDependentColor == null) {
+			return null;
+		}
+		return new PrimitiveValueDependentColor() {
+			@Override
+			public int get(double valueX, double valueY) {
+				return valueDependentColor.get(new GraphViewData(valueX, valueY));
 			}
+		};
+	}
+
+	/**
+	 * @see #drawGraph(Canvas, int, int)
+	 * @return a new bitmap with a transparent background
+	 */
+	public Bitmap renderBitmap(int width, int height) {
+		Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+		drawGraph(new Canvas(bitmap), width, height);
+		return bitmap;
+	}
+
+	/**
+	 * renders the graph and writes it as PNG, the stream is not closed
+	 * @see #drawGraph(Canvas, int, int)
+	 * @return false if the image could not be written
+	 */
+	public boolean writePng(OutputStream out, int width, int height) {
+		Bitmap bitmap = renderBitmap(width, height);
+		try {
+			return bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+		} finally {
+			bitmap.recycle();
 		}
 	}
-	
+
+	/**
+	 * grid, horizontal labels, title and legend are drawn into cached bitmaps that are only redrawn
+	 * when size, labels, style or legend content change. Default is true.
+	 * @param cacheStaticLayers false to draw everything on every frame
+	 */
+	public void setCacheStaticLayers(boolean cacheStaticLayers) {
+		this.cacheStaticLayers = cacheStaticLayers;
+		if (!cacheStaticLayers) {
+			graphContentView.releaseLayers();
+		}
+		graphContentView.invalidate();
+	}
+
+	public boolean isCacheStaticLayers() {
+		return cacheStaticLayers;
+	}
+
+	protected void drawLegend(Canvas canvas, float height, float width) {
+		int count = graphSeries.size();
+		if (legendColors.length != count) {
+			legendColors = new int[count];
+			legendDescriptions = new String[count];
+		}
+		for (int i=0; i<count; i++) {
+			legendColors[i] = graphSeries.get(i).getStyle().color;
+			legendDescriptions[i] = graphSeries.get(i).description;
+		}
+		countDrawCalls(GraphPainter.drawLegend(getRenderer(canvas), height, width, legendWidth, legendAlign.ordinal(), count, legendColors, legendDescriptions, horizLabelTextSize));
+	}
+
+	/**
+	 * the renderer of the view, drawing on the canvas. Graphs draw their series through it.
+	 * like the paint, it may only be used while the graph is drawn.
+	 */
+	protected CanvasRenderer getRenderer(Canvas canvas) {
+		canvasRenderer.setCanvas(canvas);
+		return canvasRenderer;
+	}
+
+	/**
+	 * @return height of the horizontal labels with their padding, 0 if they are not shown
+	 */
+	private int measureHorizontalLabels(GraphRenderer renderer) {
+		if (!showHorizontalLabels) {
+			return 0;
+		}
+		renderer.setTextSize(horizLabelTextSize);
+		return (int) (renderer.getTextHeight() + horizLabelPadding);
+	}
+
 	protected void drawSeries(Canvas canvas, float border, float horstart, double minY, double minX, double diffX, float graphheight, float graphwidth, double diffY) {
 		for (int i = 0; i<graphSeries.size(); i++) {
-			drawDataSeries(canvas, _values(i), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, graphSeries.get(i).getStyle());
+			long start = beginSeriesMetrics();
+			GraphViewDataSet viewport = _values(i);
+			GraphViewDataSet values = levelOfDetail(i, viewport, graphwidth);
+			values = decimate(i, values, minX, diffX, graphwidth);
+			drawDataSeries(canvas, values, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, graphSeries.get(i).getStyle());
+			endSeriesMetrics(i, start, viewport.size(), values.size());
 		}
 	}
 
-	abstract public void drawDataSeries(Canvas canvas, GraphViewData[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style);
+	/**
+	 * if the series has a level of detail pyramid and there is more than one data point per pixel,
+	 * the summary of the visible data is returned instead of the raw data.
+	 * @param idxSeries
+	 * @param values visible data of the series
+	 * @param graphwidth
+	 * @return the data that has to be drawn
+	 */
+	protected GraphViewDataSet levelOfDetail(int idxSeries, GraphViewDataSet values, float graphwidth) {
+		SeriesSnapshot snapshot = snapshot(idxSeries);
+		if (!snapshot.isLevelOfDetail()) {
+			return values;
+		}
+		int fromIndex = 0;
+		int toIndex = snapshot.size();
+		if (viewportStart != 0 || viewportSize != 0) {
+			SeriesSnapshot.SubSet subSet = viewportValues(idxSeries);
+			fromIndex = subSet.getFromIndex();
+			toIndex = subSet.getToIndex();
+		}
 
+		if (levelOfDetailValues.length != graphSeries.size()) {
+			levelOfDetailValues = new GraphViewDataBuffer[graphSeries.size()];
+		}
+		if (levelOfDetailValues[idxSeries] == null) {
+			levelOfDetailValues[idxSeries] = new GraphViewDataBuffer();
+		}
+		if (snapshot.getLevelOfDetail(fromIndex, toIndex, graphwidth, levelOfDetailValues[idxSeries])) {
+			return levelOfDetailValues[idxSeries];
+		}
+		return values;
+	}
+
+	/**
+	 * applies the decimator (if set) to the visible data of a series
+	 * @param idxSeries
+	 * @param values visible data of the series
+	 * @return the data that has to be drawn
+	 */
+	protected GraphViewDataSet decimate(int idxSeries, GraphViewDataSet values, double minX, double diffX, float graphwidth) {
+		if (decimator == null) {
+			return values;
+		}
+		if (decimatedValues.length != graphSeries.size()) {
+			decimatedValues = new GraphViewDataBuffer[graphSeries.size()];
+		}
+		if (decimatedValues[idxSeries] == null) {
+			decimatedValues[idxSeries] = new GraphViewDataBuffer();
+		}
+		return decimator.decimate(values, minX, diffX, graphwidth, decimatedValues[idxSeries]);
+	}
+
+	/**
+	 * maps data to pixel coordinates in one pass.
+	 * the values are rebased to the viewport origin (minX, minY) in double precision before they are
+	 * narrowed to float, so large x values (e.g. timestamps in milliseconds) don't lose precision.
+	 * @param values the data
+	 * @param minX x value at the left edge
+	 * @param minY y value at the bottom edge
+	 * @param diffX x range of the graph
+	 * @param diffY y range of the graph
+	 * @param graphwidth width in pixels
+	 * @param graphheight height in pixels
+	 * @param left pixel position of minX
+	 * @param bottom pixel position of minY
+	 * @param buffer reusable output buffer, may be null
+	 * @return buffer or a larger buffer if it was too small, containing x0, y0, x1, y1, ...
+	 */
+	protected static float[] project(GraphViewDataSet values, double minX, double minY, double diffX, double diffY, float graphwidth, float graphheight, float left, float bottom, float[] buffer) {
+		return GraphPainter.project(values, minX, minY, diffX, diffY, graphwidth, graphheight, left, bottom, buffer);
+	}
+
+	/**
+	 * draws the visible data of a series. Subclasses that were written for the old
+	 * GraphViewData[] signature extend {@link LegacyGraphView} instead.
+	 */
+	abstract public void drawDataSeries(Canvas canvas, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style);
+
+	/**
+	 * labels of a {@link BufferedLabelFormatter} are written into a reusable buffer, labels of other
+	 * formatters are cached by value, set the formatter again if its output changes.
+	 * @param verticalLabelFormatter
+	 */
 	public void setVerticalLabelFormatter(LabelFormatter verticalLabelFormatter) {
 		this.verticalLabelFormatter = verticalLabelFormatter;
+		labelGenerators[0].clearCache();
 	}
 
+	/**
+	 * labels of a {@link BufferedLabelFormatter} are written into a reusable buffer, labels of other
+	 * formatters are cached by value, set the formatter again if its output changes.
+	 * @param horizontalLabelFormatter
+	 */
 	public void setHorizontalLabelFormatter(LabelFormatter horizontalLabelFormatter) {
 		this.horizontalLabelFormatter = horizontalLabelFormatter;
+		labelGenerators[1].clearCache();
+	}
+
+
+	private final LabelGenerator[] labelGenerators = {new LabelGenerator(), new LabelGenerator()};
+
+	/**
+	 * labels of subclasses that override {@link #formatLabel(double, boolean)}, index 0 is the vertical axis
+	 */
+	private final LabelFormatter[] formatLabelAdapters = {new FormatLabelAdapter(false), new FormatLabelAdapter(true)};
+	private final boolean formatLabelOverridden = isFormatLabelOverridden();
+
+	/**
+	 * formats the labels of an axis with {@link GraphView#formatLabel(double, boolean)},
+	 * the label generator caches the Strings it returns
+	 */
+	private class FormatLabelAdapter implements LabelFormatter {
+		private final boolean isValueX;
+
+		FormatLabelAdapter(boolean isValueX) {
+			this.isValueX = isValueX;
+		}
+
+		@Override
+		public String formatLabel(double value) {
+			return GraphView.this.formatLabel(value, isValueX);
+		}
+	}
+
+	private boolean isFormatLabelOverridden() {
+		return isOverridden(GraphView.class, "formatLabel", double.class, boolean.class);
+	}
+
+	/**
+	 * @return true if a subclass of base declares the method
+	 */
+	boolean isOverridden(Class<?> base, String name, Class<?>... parameterTypes) {
+		for (Class<?> c = getClass(); c != base && c != null; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not in this class
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if a subclass of base draws series or legend itself, then its headless version
+	 * would look different, see {@link #createHeadlessGraph()}
+	 */
+	boolean hasCustomDrawing(Class<?> base) {
+		return isOverridden(base, "drawDataSeries", Canvas.class, GraphViewDataSet.class, float.class, float.class, float.class, double.class, double.class, double.class, double.class, float.class, GraphViewSeriesStyle.class)
+				|| isOverridden(base, "drawSeries", Canvas.class, float.class, float.class, double.class, double.class, double.class, float.class, float.class, double.class)
+				|| isOverridden(base, "drawLegend", Canvas.class, float.class, float.class);
 	}
 
+	/**
+	 * @param labelFormatter the formatter that was set for the axis, or null
+	 * @return the formatter for the labels of the axis, null for the default one
+	 */
+	private LabelFormatter labelFormatter(LabelFormatter labelFormatter, boolean isValueX, double min, double max) {
+		if (labelFormatter != null || !formatLabelOverridden) {
+			return labelFormatter;
+		}
+		LabelGenerator generator = labelGenerators[isValueX ? 1 : 0];
+		DecimalLabelFormatter previous = generator.getFormatter();
+		if (generator.prepareFormatter(min, max) != previous) {
+			// the override may call super.formatLabel, whose output depends on the range
+			generator.clearCache();
+		}
+		return formatLabelAdapters[isValueX ? 1 : 0];
+	}
 
-	NumberFormat[] formatter = new NumberFormat[2];
+	/**
+	 * formats a label with the default formatter of the axis.
+	 * Subclasses may override it, it is used for the labels of the axes that have no LabelFormatter.
+	 * Like those of a LabelFormatter, the labels are cached by value: set the label formatter of the
+	 * axis to null again if the output changes.
+	 */
 	public String formatLabel(double value, boolean isValueX) {
-		int i = isValueX ? 1 : 0;
-		if (formatter[i] == null) {
-			formatter[i] = NumberFormat.getNumberInstance(Locale.getDefault());
+		LabelGenerator generator = labelGenerators[isValueX ? 1 : 0];
+		// local copy, the render thread may replace the formatter
+		DecimalLabelFormatter f = generator.getFormatter();
+		if (f == null) {
 			double highestvalue = isValueX ? getMaxX(false) : getMaxY();
 			double lowestvalue = isValueX ? getMinX(false) : getMinY();
-			if (highestvalue - lowestvalue < 0.1) {
-				formatter[i].setMaximumFractionDigits(6);
-			} else if (highestvalue - lowestvalue < 1) {
-				formatter[i].setMaximumFractionDigits(4);
-			} else if (highestvalue - lowestvalue < 20) {
-				formatter[i].setMaximumFractionDigits(3);
-			} else if (highestvalue - lowestvalue < 100) {
-				formatter[i].setMaximumFractionDigits(1);
-			} else {
-				formatter[i].setMaximumFractionDigits(0);
-			}
+			f = generator.prepareFormatter(lowestvalue, highestvalue);
 		}
-		return formatter[i].format(value);
+		return f.formatLabel(value);
 	}
 
-	private String[] generateHorlabels(float graphwidth) {
+	/**
+	 * @param buffers pair of buffers, the last generated labels first
+	 * @return the buffer that was not used by the last generated labels
+	 */
+	private static LabelBuffer nextLabelBuffer(LabelBuffer[] buffers) {
+		LabelBuffer next = buffers[1];
+		buffers[1] = buffers[0];
+		buffers[0] = next;
+		return next;
+	}
 
-		int numLabels = numHorizLabels > 0 ? numHorizLabels - 1 : (int) (graphwidth/GraphViewConfig.VERTICAL_LABEL_WIDTH);
+	static float measureLabel(LabelBuffer labels, int index, Paint paint) {
+		return paint.measureText(labels.chars(), labels.start(index), labels.length(index));
+	}
+
+	private LabelBuffer generateHorlabels(float graphwidth) {
+		LabelBuffer labels = nextLabelBuffer(horlabelBuffers);
+		fillHorlabels(labels, graphwidth);
+		return labels;
+	}
 
-		String[] labels = new String[numLabels+1];
+	private void fillHorlabels(LabelBuffer labels, float graphwidth) {
+		int numLabels = numHorizLabels > 0 ? numHorizLabels - 1 : (int) (graphwidth/GraphViewConfig.VERTICAL_LABEL_WIDTH);
 		double min = getMinX(false);
 		double max = getMaxX(false);
-
-		for (int i=0; i<=numLabels; i++) {
-			if (horizontalLabelFormatter != null) {
-				labels[i] = horizontalLabelFormatter.formatLabel(min + ((max-min)*i/numLabels));
-			} else {
-				labels[i] = formatLabel(min + ((max-min)*i/numLabels), true);
-			}
-		}
-		return labels;
+		LabelFormatter labelFormatter = labelFormatter(horizontalLabelFormatter, true, min, max);
+		countLabelsWithoutAllocation(labelGenerators[1].generate(labels, min, max, numLabels, labelFormatter, false));
 	}
 	
 	public void startAnimation() {
@@ -585,7 +1554,7 @@ abstract public class GraphView extends LinearLayout {
 			@Override
 			public void onAnimationUpdate(ValueAnimator anim) {
 				GraphView.this.onAnimationUpdate(anim);
-				redrawAll();
+				scheduleRedraw();
 			}
 		});
 
@@ -597,39 +1566,86 @@ abstract public class GraphView extends LinearLayout {
 		this.animDuration = duration;
 	}
 
+	public long getAnimationDuration() {
+		return animDuration;
+	}
+
 	public void setInterpolator(Interpolator interpolator) {
 		this.interpolator = interpolator;
 	}
 
+	public Interpolator getInterpolator() {
+		return interpolator;
+	}
+
 	protected void onAnimationUpdate(ValueAnimator anim) {}
 
-	synchronized private String[] generateVerlabels(float graphheight) {
+	/**
+	 * has to be called with the lock of graphSeries, like all code that reads the viewport data
+	 */
+	synchronized private LabelBuffer generateVerlabels(float graphheight) {
+		// from top to bottom. The vertical labels view may still draw the other buffer
+		LabelBuffer labels = nextLabelBuffer(verlabelBuffers);
+		int maxWidth;
+		synchronized (labels) {
+			maxWidth = fillVerlabels(labels, graphheight);
+		}
+
+		// the width is rounded up to steps, so the layout only changes if the labels
+		// grow beyond the step or shrink by more than a step
+		int step = vertLabelWidthStep;
+		final int labelsWidth = (maxWidth + vertLabelPadding + step - 1) / step * step;
+		if (labelsWidth <= vertLabelsWidth && labelsWidth > vertLabelsWidth - 2*step) {
+			return labels;
+		}
+		vertLabelsWidth = labelsWidth;
+		if (GraphViewRenderThread.isCurrentThread()) {
+			// layout has to be changed on the ui thread
+			viewVerLabels.post(new Runnable() {
+				@Override
+				public void run() {
+					setVerLabelsWidth(labelsWidth);
+				}
+			});
+		} else {
+			setVerLabelsWidth(labelsWidth);
+		}
+
+		return labels;
+	}
+
+	/**
+	 * writes the vertical labels from top to bottom into the buffer
+	 * @return width of the widest label, measured with the text size of the vertical labels
+	 */
+	synchronized private int fillVerlabels(LabelBuffer labels, float graphheight) {
 		int numLabels = numVertLabels > 0 ? numVertLabels - 1 : (int) (graphheight/GraphViewConfig.HORIZONTAL_LABEL_HEIGHT);
-		String[] labels = new String[numLabels+1];
 		double min = getMinY();
 		double max = getMaxY();
+		LabelFormatter labelFormatter = labelFormatter(verticalLabelFormatter, false, min, max);
+		if (labelFormatter == null) {
+			labelFormatter = labelGenerators[0].prepareFormatter(min, max);
+		}
 		if (max == min) {
 			// if min/max is the same, fake it so that we can render a line
 			max = max*1.05d;
 			min = min*0.95d;
 		}
 
+		countLabelsWithoutAllocation(labelGenerators[0].generate(labels, min, max, numLabels, labelFormatter, true));
+		Paint paint = verlabelMeasurePaint;
+		paint.setTextSize(vertLabelTextSize);
 		int maxWidth = 0;
-		for (int i=0; i<=numLabels; i++) {
-			if (verticalLabelFormatter != null) {
-				labels[numLabels-i] = verticalLabelFormatter.formatLabel(min + ((max-min)*i/numLabels));
-			} else {
-				labels[numLabels-i] = formatLabel(min + ((max-min)*i/numLabels), false);
-			}
-			
-			maxWidth = (int) Math.max(maxWidth, paint.measureText(labels[numLabels-i]));
+		for (int i=0; i<labels.size(); i++) {
+			maxWidth = (int) Math.max(maxWidth, measureLabel(labels, i, paint));
 		}
-		
+		return maxWidth;
+	}
+
+	private void setVerLabelsWidth(int width) {
 		LayoutParams params = (LayoutParams) viewVerLabels.getLayoutParams();
-		params.width = maxWidth + vertLabelPadding;
+		params.width = width;
 		viewVerLabels.requestLayout();
-
-		return labels;
 	}
 
 	public LegendAlign getLegendAlign() {
@@ -654,19 +1670,12 @@ abstract public class GraphView extends LinearLayout {
 		} else {
 			// otherwise use the max x value
 			// values must be sorted by x, so the last value has the largest X value
-			double highest = 0;
-			if (graphSeries.size() > 0)
-			{
-				GraphViewData[] values = graphSeries.get(0).values;
-				if (values.length == 0) {
-					highest = 0;
-				} else {
-					highest = values[values.length-1].valueX;
-					for (int i=1; i<graphSeries.size(); i++) {
-						values = graphSeries.get(i).values;
-						highest = Math.max(highest, values[values.length-1].valueX);
-					}
-				}
+			double highest = Double.NaN;
+			for (int i=0; i<graphSeries.size(); i++) {
+				highest = maxIgnoringNaN(highest, seriesMaxX(i));
+			}
+			if (highest != highest) {
+				highest = 0;
 			}
 			return highest;
 		}
@@ -684,15 +1693,47 @@ abstract public class GraphView extends LinearLayout {
 		} else {
 			largest = Integer.MIN_VALUE;
 			for (int i=0; i<graphSeries.size(); i++) {
-				GraphViewData[] values = _values(i);
-				for (int ii=0; ii<values.length; ii++)
-					if (values[ii].valueY > largest)
-						largest = values[ii].valueY;
+				double value = visibleY(i, true);
+				if (value > largest)
+					largest = value;
 			}
 		}
 		return largest;
 	}
 
+	/**
+	 * @return the smallest x of all data of the series, NaN if it has no data.
+	 * paged series may not have loaded all data, their provider knows the range.
+	 */
+	private double seriesMinX(int idxSeries) {
+		SeriesDataProvider provider = graphSeries.get(idxSeries).getDataProvider();
+		if (provider != null) {
+			return provider.getMinX();
+		}
+		SeriesSnapshot snapshot = snapshot(idxSeries);
+		return snapshot.size() > 0 ? snapshot.getX(0) : Double.NaN;
+	}
+
+	/**
+	 * @see #seriesMinX(int)
+	 */
+	private double seriesMaxX(int idxSeries) {
+		SeriesDataProvider provider = graphSeries.get(idxSeries).getDataProvider();
+		if (provider != null) {
+			return provider.getMaxX();
+		}
+		SeriesSnapshot snapshot = snapshot(idxSeries);
+		return snapshot.size() > 0 ? snapshot.getX(snapshot.size()-1) : Double.NaN;
+	}
+
+	private static double minIgnoringNaN(double a, double b) {
+		return a < b || b != b ? a : b;
+	}
+
+	private static double maxIgnoringNaN(double a, double b) {
+		return a > b || b != b ? a : b;
+	}
+
 	/**
 	 * returns the minimal X value of the current viewport (if viewport is set)
 	 * otherwise minimal X value of all data.
@@ -707,19 +1748,12 @@ abstract public class GraphView extends LinearLayout {
 		} else {
 			// otherwise use the min x value
 			// values must be sorted by x, so the first value has the smallest X value
-			double lowest = 0;
-			if (graphSeries.size() > 0)
-			{
-				GraphViewData[] values = graphSeries.get(0).values;
-				if (values.length == 0) {
-					lowest = 0;
-				} else {
-					lowest = values[0].valueX;
-					for (int i=1; i<graphSeries.size(); i++) {
-						values = graphSeries.get(i).values;
-						lowest = Math.min(lowest, values[0].valueX);
-					}
-				}
+			double lowest = Double.NaN;
+			for (int i=0; i<graphSeries.size(); i++) {
+				lowest = minIgnoringNaN(lowest, seriesMinX(i));
+			}
+			if (lowest != lowest) {
+				lowest = 0;
 			}
 			return lowest;
 		}
@@ -737,10 +1771,9 @@ abstract public class GraphView extends LinearLayout {
 		} else {
 			smallest = Integer.MAX_VALUE;
 			for (int i=0; i<graphSeries.size(); i++) {
-				GraphViewData[] values = _values(i);
-				for (int ii=0; ii<values.length; ii++)
-					if (values[ii].valueY < smallest)
-						smallest = values[ii].valueY;
+				double value = visibleY(i, false);
+				if (value < smallest)
+					smallest = value;
 			}
 		}
 		return smallest;
@@ -754,20 +1787,79 @@ abstract public class GraphView extends LinearLayout {
 		return showLegend;
 	}
 
+	/**
+	 * regenerates the labels and redraws the graph.
+	 * this is done once on the next frame, no matter how often it is called until then.
+	 */
 	public void redrawAll() {
-		verlabels = null;
-		horlabels = null;
-		
-		formatter[0] = null;
-		formatter[1] = null;
-		
+		synchronized (pendingFrameLock) {
+			pendingRedraw = true;
+		}
+		scheduleFrame();
+	}
+
+	/**
+	 * redraws the graph on the next frame, without regenerating the labels.
+	 * for animations, where only the drawing of the data changes.
+	 */
+	void scheduleRedraw() {
+		scheduleFrame();
+	}
+
+	/**
+	 * requests one call of {@link #doFrame()} on the next vsync
+	 */
+	private void scheduleFrame() {
+		synchronized (pendingFrameLock) {
+			if (frameScheduled) {
+				return;
+			}
+			frameScheduled = true;
+		}
+		frameScheduler.postFrame();
+	}
+
+	/**
+	 * applies all changes that were collected since the last frame: scroll deltas, scroll to end
+	 * and label regeneration. Then the views are invalidated once.
+	 */
+	private void doFrame() {
+		float scroll;
+		boolean scrollToEnd;
+		boolean redraw;
+		synchronized (pendingFrameLock) {
+			scroll = pendingScroll;
+			scrollToEnd = pendingScrollToEnd;
+			redraw = pendingRedraw;
+			pendingScroll = 0;
+			pendingScrollToEnd = false;
+			pendingRedraw = false;
+			frameScheduled = false;
+		}
+
+		if (scroll != 0) {
+			graphContentView.applyMoveGesture(scroll);
+		}
+		if (scrollToEnd) {
+			double max = getMaxX(true);
+			viewportStart = max-viewportSize;
+		}
+		requestViewportData();
+		if (redraw) {
+			// the formatters and cached labels stay, they are replaced when the range changes magnitude
+			verlabels = null;
+			horlabels = null;
+		}
+
 		invalidate();
 		viewVerLabels.invalidate();
 		graphContentView.invalidate();
 	}
 
 	public void removeSeries(GraphViewSeries series){
-		graphSeries.remove(series);
+		synchronized (graphSeries) {
+			graphSeries.remove(series);
+		}
 	}
 
 	public void removeSeries(int index) {
@@ -776,19 +1868,29 @@ abstract public class GraphView extends LinearLayout {
 			throw new IndexOutOfBoundsException("No series at index " + index);
 		}
 
-		graphSeries.remove(index);
+		synchronized (graphSeries) {
+			graphSeries.remove(index);
+		}
 	}
 	
 	public void clearData() {
-		graphSeries.clear();
+		synchronized (graphSeries) {
+			graphSeries.clear();
+		}
 		redrawAll();
 	}
 
+	/**
+	 * scrolls to the maximal x value on the next frame.
+	 * calls until then (e.g. for every appended data) are merged.
+	 */
 	public void scrollToEnd() {
 		if (!scrollable) throw new IllegalStateException("This GraphView is not scrollable.");
-		double max = getMaxX(true);
-		viewportStart = max-viewportSize;
-		redrawAll();
+		synchronized (pendingFrameLock) {
+			pendingScrollToEnd = true;
+			pendingRedraw = true;
+		}
+		scheduleFrame();
 	}
 
 	/**
@@ -796,7 +1898,7 @@ abstract public class GraphView extends LinearLayout {
 	 * @param horlabels if null, labels were generated automatically
 	 */
 	public void setHorizontalLabels(String[] horlabels) {
-		this.horlabels = horlabels;
+		this.horlabels = horlabels != null ? new LabelBuffer(horlabels) : null;
 	}
 
 	public void setLegendAlign(LegendAlign legendAlign) {
@@ -885,7 +1987,7 @@ abstract public class GraphView extends LinearLayout {
 	 * @param verlabels if null, labels were generated automatically
 	 */
 	public void setVerticalLabels(String[] verlabels) {
-		this.verlabels = verlabels;
+		this.verlabels = verlabels != null ? new LabelBuffer(verlabels) : null;
 	}
 
 	/**
@@ -896,5 +1998,27 @@ abstract public class GraphView extends LinearLayout {
 	public void setViewPort(double start, double size) {
 		viewportStart = start;
 		viewportSize = size;
+		requestViewportData();
+	}
+
+	/**
+	 * paged series load the data of a changed viewport, see {@link SeriesDataProvider}.
+	 * the direction of the move decides which side is prefetched.
+	 */
+	private void requestViewportData() {
+		double start = viewportStart;
+		double size = viewportSize;
+		int direction;
+		synchronized (pendingFrameLock) {
+			if (start == requestedViewportStart && size == requestedViewportSize) {
+				return;
+			}
+			direction = start > requestedViewportStart ? 1 : start < requestedViewportStart ? -1 : 0;
+			requestedViewportStart = start;
+			requestedViewportSize = size;
+		}
+		for (int i=0; i<graphSeries.size(); i++) {
+			graphSeries.get(i).requestData(start, size, direction);
+		}
 	}
 }
@@ -0,0 +1,64 @@
+package com.jjoe64.graphview;
+
+/**
+ * growable x/y columns that are meant to be reused, e.g. as output of a {@link Decimator}.
+ * after the first frames the buffer has its final size and no more allocations happen.
+ */
+public class GraphViewDataBuffer implements GraphViewDataSet {
+	private double[] valuesX;
+	private double[] valuesY;
+	private int size;
+
+	public GraphViewDataBuffer() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity initial capacity
+	 */
+	public GraphViewDataBuffer(int capacity) {
+		valuesX = new double[capacity];
+		valuesY = new double[capacity];
+	}
+
+	/**
+	 * removes all data, the memory is kept
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param valueX has to be >= the last x value
+	 * @param valueY
+	 */
+	public void add(double valueX, double valueY) {
+		if (size == valuesX.length) {
+			int capacity = Math.max(16, size*2);
+			double[] newValuesX = new double[capacity];
+			double[] newValuesY = new double[capacity];
+			System.arraycopy(valuesX, 0, newValuesX, 0, size);
+			System.arraycopy(valuesY, 0, newValuesY, 0, size);
+			valuesX = newValuesX;
+			valuesY = newValuesY;
+		}
+		valuesX[size] = valueX;
+		valuesY[size] = valueY;
+		size++;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return valuesX[index];
+	}
+
+	@Override
+	public double getY(int index) {
+		return valuesY[index];
+	}
+}
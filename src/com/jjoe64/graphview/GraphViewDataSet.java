@@ -0,0 +1,24 @@
+package com.jjoe64.graphview;
+
+/**
+ * read access to a sequence of data points, stored as primitive x/y columns.
+ * the points have to be sorted by their x value.
+ */
+public interface GraphViewDataSet {
+	/**
+	 * @return number of data points
+	 */
+	public int size();
+
+	/**
+	 * @param index 0 to size()-1
+	 * @return x value of the data point at this index
+	 */
+	public double getX(int index);
+
+	/**
+	 * @param index 0 to size()-1
+	 * @return y value of the data point at this index
+	 */
+	public double getY(int index);
+}
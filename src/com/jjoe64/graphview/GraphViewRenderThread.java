@@ -0,0 +1,41 @@
+package com.jjoe64.graphview;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * background thread that renders the graphs that use {@link GraphView#setRenderOnBackgroundThread(boolean)}.
+ * there is only one thread, it is shared by all graphs.
+ */
+final class GraphViewRenderThread {
+	private static volatile GraphViewRenderThread instance;
+
+	private final HandlerThread thread;
+	private final Handler handler;
+
+	private GraphViewRenderThread() {
+		thread = new HandlerThread("GraphViewRenderThread", Process.THREAD_PRIORITY_DISPLAY);
+		thread.start();
+		handler = new Handler(thread.getLooper());
+	}
+
+	static synchronized GraphViewRenderThread getInstance() {
+		if (instance == null) {
+			instance = new GraphViewRenderThread();
+		}
+		return instance;
+	}
+
+	/**
+	 * @return true if the render thread was started and the caller is running on it
+	 */
+	static boolean isCurrentThread() {
+		GraphViewRenderThread instance = GraphViewRenderThread.instance;
+		return instance != null && Thread.currentThread() == instance.thread;
+	}
+
+	void post(Runnable job) {
+		handler.post(job);
+	}
+}
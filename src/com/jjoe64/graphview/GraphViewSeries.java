@@ -1,11 +1,14 @@
 package com.jjoe64.graphview;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.jjoe64.graphview.GraphView.GraphViewData;
 
-public class GraphViewSeries {
+public class GraphViewSeries implements GraphViewDataSet {
 	/**
 	 * graph series style: color and thickness
 	 */
@@ -14,6 +17,7 @@ public class GraphViewSeries {
 		public int color;
 		public int thickness;
 		private ValueDependentColor valueDependentColor;
+		private PrimitiveValueDependentColor primitiveValueDependentColor;
 
 		public GraphViewSeriesStyle(int color, int thickness) {
 			this.color = color;
@@ -21,17 +25,41 @@ public class GraphViewSeries {
 		}
 		public void setValueDependentColor(ValueDependentColor valueDependentColor) {
 			this.valueDependentColor = valueDependentColor;
+			this.primitiveValueDependentColor = null;
 		}
 		public ValueDependentColor getValueDependentColor() {
 			return valueDependentColor;
 		}
+		/**
+		 * value dependent color without a GraphViewData object per data point
+		 * @param primitiveValueDependentColor replaces a {@link ValueDependentColor}
+		 */
+		public void setPrimitiveValueDependentColor(PrimitiveValueDependentColor primitiveValueDependentColor) {
+			this.primitiveValueDependentColor = primitiveValueDependentColor;
+			this.valueDependentColor = null;
+		}
+		public PrimitiveValueDependentColor getPrimitiveValueDependentColor() {
+			return primitiveValueDependentColor;
+		}
 	}
 
+
 	final String description;
 	
 	private GraphViewSeriesStyle style;
-	GraphViewData[] values;
-	private final List<GraphView> graphViews = new ArrayList<GraphView>();
+
+	/**
+	 * the data and its snapshots. The methods of the series that change the data are synchronized,
+	 * they update the data and notify the graphview(s).
+	 */
+	private final SeriesData data;
+
+	/**
+	 * the chunks of a paged series, null otherwise
+	 */
+	private PagedSeriesData paged;
+
+	private final List<GraphView> graphViews = new CopyOnWriteArrayList<GraphView>();
 	
 	public GraphViewSeries(GraphViewData[] values) {
 		this(values, null, null);
@@ -44,7 +72,144 @@ public class GraphViewSeries {
 	public GraphViewSeries( GraphViewData[] values, String description, GraphViewSeriesStyle style) {
 		this.description = description;
 		this.style = style;
-		this.values = values;
+		this.data = new SeriesData(valuesX(values), valuesY(values), 0);
+	}
+
+	/**
+	 * creates an empty series for live data that keeps only the latest data.
+	 * it works as a ring buffer: the storage is allocated once and if it is full,
+	 * {@link #appendData(double, double, boolean)} drops the oldest data.
+	 * the storage has room for 2*maxDataPoints, the unused half keeps the dropped data alive
+	 * for readers that still use an older {@link SeriesSnapshot}.
+	 * @param description
+	 * @param style
+	 * @param maxDataPoints capacity of the series
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, int maxDataPoints) {
+		if (maxDataPoints <= 0 || maxDataPoints > Integer.MAX_VALUE/2) {
+			throw new IllegalArgumentException("maxDataPoints must be > 0 and <= Integer.MAX_VALUE/2");
+		}
+		this.description = description;
+		this.style = style;
+		this.data = new SeriesData(new double[0], new double[0], maxDataPoints);
+	}
+
+	/**
+	 * creates a series from primitive x/y columns. The arrays are used directly, not copied.
+	 * @param valuesX x values, have to be sorted
+	 * @param valuesY y values, same length as valuesX
+	 * @param description
+	 * @param style
+	 */
+	public GraphViewSeries(double[] valuesX, double[] valuesY, String description, GraphViewSeriesStyle style) {
+		this.description = description;
+		this.style = style;
+		this.data = new SeriesData(valuesX, valuesY, 0);
+	}
+
+	/**
+	 * creates a series that shows the data of a file, e.g. a log of a sensor.
+	 * each data point is a little-endian double x followed by a little-endian double y, sorted by x.
+	 * the file is memory-mapped, so only the pages of the visible data are read and the heap usage
+	 * doesn't depend on the size of the file. Binary searches for the viewport work on the mapped data.
+	 * appended data is written through to the file.
+	 * level of detail is not available, the min/max of the viewport is found by scanning it.
+	 * @param file created if it doesn't exist
+	 * @param description
+	 * @param style
+	 * @throws IOException if the file can't be opened or mapped
+	 * @see #close()
+	 */
+	public GraphViewSeries(File file, String description, GraphViewSeriesStyle style) throws IOException {
+		this.description = description;
+		this.style = style;
+		this.data = new SeriesData(file);
+	}
+
+	/**
+	 * creates a series whose data is loaded in chunks from a provider, only around the viewport.
+	 * when the viewport of a graph changes, missing chunks and the chunks of the next viewport in
+	 * scroll direction are loaded on a shared pool of background threads. The graph draws the data
+	 * it already has and is redrawn when more arrives.
+	 * @param provider
+	 * @param chunkWidth x range of a chunk
+	 * @param maxCachedChunks number of loaded chunks that are kept, least recently used ones are dropped.
+	 * should be more than the chunks of two viewports
+	 * @param description
+	 * @param style
+	 */
+	public GraphViewSeries(SeriesDataProvider provider, double chunkWidth, int maxCachedChunks, String description, GraphViewSeriesStyle style) {
+		this(provider, chunkWidth, maxCachedChunks, null, description, style);
+	}
+
+	/**
+	 * @see #GraphViewSeries(SeriesDataProvider, double, int, String, GraphViewSeriesStyle)
+	 * @param executor runs the loading of the chunks. An executor that runs the tasks directly makes the series synchronous
+	 */
+	public GraphViewSeries(SeriesDataProvider provider, double chunkWidth, int maxCachedChunks, Executor executor, String description, GraphViewSeriesStyle style) {
+		this.description = description;
+		this.style = style;
+		this.data = new SeriesData(new double[0], new double[0], 0);
+		this.paged = new PagedSeriesData(this, provider, chunkWidth, maxCachedChunks, executor);
+	}
+
+	private static double[] valuesX(GraphViewData[] values) {
+		double[] valuesX = new double[values.length];
+		for (int i=0; i<values.length; i++) {
+			valuesX[i] = values[i].valueX;
+		}
+		return valuesX;
+	}
+
+	private static double[] valuesY(GraphViewData[] values) {
+		double[] valuesY = new double[values.length];
+		for (int i=0; i<values.length; i++) {
+			valuesY[i] = values[i].valueY;
+		}
+		return valuesY;
+	}
+
+	/**
+	 * the chunks around the viewport of a paged series were loaded
+	 */
+	synchronized void setPagedValues(double[] valuesX, double[] valuesY) {
+		data.setValues(valuesX, valuesY);
+		redrawGraphViews(false);
+	}
+
+	/**
+	 * @return the provider of a paged series, otherwise null
+	 */
+	public SeriesDataProvider getDataProvider() {
+		return paged != null ? paged.getProvider() : null;
+	}
+
+	/**
+	 * loads the data of a paged series for the viewport of a graph, does nothing for other series
+	 * @param viewportStart
+	 * @param viewportSize 0 for all data
+	 * @param direction > 0 if the viewport moved to larger x, < 0 to smaller x, 0 if unknown
+	 */
+	void requestData(double viewportStart, double viewportSize, int direction) {
+		if (paged != null) {
+			paged.request(viewportStart, viewportSize, direction);
+		}
+	}
+
+	private void checkNotPaged() {
+		if (paged != null) {
+			throw new IllegalStateException("the data of a paged series comes from its provider");
+		}
+	}
+
+	private void redrawGraphViews(boolean scrollToEnd) {
+		for (GraphView g : graphViews) {
+			if (scrollToEnd) {
+				g.scrollToEnd();
+			} else {
+				g.redrawAll();
+			}
+		}
 	}
 
 	/**
@@ -61,29 +226,178 @@ public class GraphViewSeries {
 	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
 	 */
 	public void appendData(GraphViewData value, boolean scrollToEnd) {
-		GraphViewData[] newValues = new GraphViewData[values.length + 1];
-		int offset = values.length;
-		System.arraycopy(values, 0, newValues, 0, offset);
+		appendData(value.valueX, value.valueY, scrollToEnd);
+	}
 
-		newValues[values.length] = value;
-		values = newValues;
-		for (GraphView g : graphViews) {
-			if (scrollToEnd) {
-				g.scrollToEnd();
-			}
+	/**
+	 * add one data to current data.
+	 * can be called from any thread, e.g. a sensor thread. Appends to the same series are serialized
+	 * by the lock of the series, which is never held by the ui thread or the render thread, so the
+	 * caller doesn't wait for drawing. The graphview(s) are redrawn on their next frame.
+	 * @param valueX x value of the new data, must be >= the last x value
+	 * @param valueY y value of the new data
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 */
+	synchronized public void appendData(double valueX, double valueY, boolean scrollToEnd) {
+		checkNotPaged();
+		data.append(valueX, valueY);
+		redrawGraphViews(scrollToEnd);
+	}
+
+	/**
+	 * add several data to current data at once, e.g. a packet of samples.
+	 * the storage grows at most once, the indexes are updated once for the whole range and
+	 * the graphview(s) are notified once. Thread-safety is the same as {@link #appendData(double, double, boolean)}.
+	 * @param valuesX x values of the new data, have to be sorted and >= the last x value
+	 * @param valuesY y values of the new data
+	 * @param offset index of the first new data in the arrays
+	 * @param length number of new data
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 */
+	synchronized public void appendData(double[] valuesX, double[] valuesY, int offset, int length, boolean scrollToEnd) {
+		checkNotPaged();
+		data.append(valuesX, valuesY, offset, length);
+		if (length > 0) {
+			redrawGraphViews(scrollToEnd);
 		}
 	}
 
+	/**
+	 * add several data to current data at once.
+	 * @param values the new data, have to be sorted by x
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @see #appendData(double[], double[], int, int, boolean)
+	 */
+	public void appendData(GraphViewData[] values, boolean scrollToEnd) {
+		appendData(valuesX(values), valuesY(values), 0, values.length, scrollToEnd);
+	}
+
+	/**
+	 * closes the file of a file-backed series, data can't be appended afterwards.
+	 * the mapped data stays readable. Does nothing for other series.
+	 * @throws IOException
+	 */
+	synchronized public void close() throws IOException {
+		data.close();
+	}
+
 	/**
 	 * clears the current data and set the new.
 	 * redraws the graphview(s)
 	 * @param values new data
 	 */
-	public void resetData(GraphViewData[] values) {
-		this.values = values;
-		for (GraphView g : graphViews) {
-			g.redrawAll();
+	synchronized public void resetData(GraphViewData[] values) {
+		checkNotPaged();
+		data.setValues(valuesX(values), valuesY(values));
+		redrawGraphViews(false);
+	}
+
+	/**
+	 * clears the current data and set the new.
+	 * redraws the graphview(s)
+	 * @param valuesX new x values, have to be sorted. The array is used directly, not copied (unless the series is a ring buffer).
+	 * It must not be modified afterwards, readers may still use it.
+	 * @param valuesY new y values, same length as valuesX
+	 */
+	synchronized public void resetData(double[] valuesX, double[] valuesY) {
+		checkNotPaged();
+		data.setValues(valuesX, valuesY);
+		redrawGraphViews(false);
+	}
+
+	/**
+	 * @return the capacity of the ring buffer or 0 if the series is unbounded
+	 */
+	public int getMaxDataPoints() {
+		return data.getMaxDataPoints();
+	}
+
+	/**
+	 * returns the latest published state of the data, without locking.
+	 * use this to read several values consistently while other threads append data.
+	 */
+	public SeriesSnapshot snapshot() {
+		return data.snapshot();
+	}
+
+	/**
+	 * size of the latest snapshot. Use {@link #snapshot()} to read consistent data.
+	 */
+	@Override
+	public int size() {
+		return data.snapshot().size();
+	}
+
+	@Override
+	public double getX(int index) {
+		return data.snapshot().getX(index);
+	}
+
+	@Override
+	public double getY(int index) {
+		return data.snapshot().getY(index);
+	}
+
+	/**
+	 * enables a multi-resolution min/max pyramid of the data. When the graph is zoomed out so that
+	 * several data points fall on one pixel, only the summary of the level whose buckets are about one
+	 * pixel wide is drawn, instead of all data. The pyramid is extended on every append in O(log n),
+	 * it needs about 8 bytes per data point.
+	 * a compressed series always draws zoomed out data from its block headers, for it this has no effect.
+	 * @param levelOfDetail
+	 */
+	synchronized public void setLevelOfDetail(boolean levelOfDetail) {
+		data.setLevelOfDetail(levelOfDetail);
+	}
+
+	public boolean isLevelOfDetail() {
+		return data.snapshot().isLevelOfDetail();
+	}
+
+	/**
+	 * stores the data compressed, for long histories in memory. The data is split into blocks of
+	 * 256 points. In a block the x values are stored as delta-of-delta and the y values XOR-ed with
+	 * the previous value, with the encoding of Facebook's Gorilla time series database. Data with
+	 * regular x intervals and smooth y values needs a few bits per point instead of 16 bytes.
+	 * the encoding is lossless.
+	 * every block has a header with its first, last, smallest and largest point. The graph decodes
+	 * only the blocks that overlap the viewport, min/max of the viewport comes from the headers.
+	 * if a block is at most two pixels wide, the graph draws the headers instead of the data, so
+	 * zoomed out graphs decode only the blocks at the edges. This replaces the level of detail
+	 * pyramid, see {@link #setLevelOfDetail(boolean)}.
+	 * reading single values by index decodes the whole block, so random access is slow.
+	 * only for unbounded series in memory.
+	 * @param compressed true to encode the current data, false to decode it into columns
+	 */
+	synchronized public void setCompressed(boolean compressed) {
+		if (compressed && paged != null) {
+			throw new IllegalStateException("only unbounded series in memory can be compressed");
 		}
+		data.setCompressed(compressed);
+	}
+
+	public boolean isCompressed() {
+		return data.snapshot().getBlocks() != null;
+	}
+
+	/**
+	 * returns the smallest y value in a range of the latest snapshot in O(log n).
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @return the smallest y value, NaN if the range is empty
+	 */
+	public double getMinY(int fromIndex, int toIndex) {
+		return data.snapshot().getMinY(fromIndex, toIndex);
+	}
+
+	/**
+	 * returns the largest y value in a range of the latest snapshot in O(log n).
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @return the largest y value, NaN if the range is empty
+	 */
+	public double getMaxY(int fromIndex, int toIndex) {
+		return data.snapshot().getMaxY(fromIndex, toIndex);
 	}
 
 	public GraphViewSeriesStyle getStyle() {
@@ -0,0 +1,78 @@
+package com.jjoe64.graphview;
+
+/**
+ * the headless version of {@link BarGraphView}, the bars are drawn at their full height
+ */
+public class HeadlessBarGraph extends HeadlessGraph {
+	/**
+	 * how bars are merged if there are more bars than pixels, see {@link #setBarAggregation(int)}
+	 */
+	public static final int AGGREGATION_NONE = 0;
+	public static final int AGGREGATION_MAX = 1;
+	public static final int AGGREGATION_SUM = 2;
+	public static final int AGGREGATION_MEAN = 3;
+
+	private float barWidth;
+	private float maxBarWidth = Integer.MAX_VALUE;
+	private int barAggregation = AGGREGATION_NONE;
+
+	@Override
+	GraphViewDataSet reduce(GraphViewDataSet data, GraphViewDataSet viewport, double minX, double diffX, float graphwidth) {
+		int bins = (int) graphwidth;
+		if (barAggregation == AGGREGATION_NONE || bins < 1 || viewport.size() <= bins) {
+			return viewport;
+		}
+		GraphViewDataBuffer out = new GraphViewDataBuffer(bins);
+		aggregate(viewport, bins, barAggregation, out);
+		return out;
+	}
+
+	/**
+	 * merges the bars into bins. bin k contains the bars from k*size/bins to (k+1)*size/bins,
+	 * x is the x value of the first one
+	 * @param aggregation AGGREGATION_MAX, AGGREGATION_SUM or AGGREGATION_MEAN
+	 * @param out is cleared first
+	 */
+	static void aggregate(GraphViewDataSet values, int bins, int aggregation, GraphViewDataBuffer out) {
+		int size = values.size();
+		out.clear();
+		for (int k = 0; k < bins; k++) {
+			int start = (int) ((long) k * size / bins);
+			int end = (int) ((long) (k+1) * size / bins);
+			double y = values.getY(start);
+			for (int i = start+1; i < end; i++) {
+				double v = values.getY(i);
+				if (aggregation == AGGREGATION_MAX) {
+					if (v > y) y = v;
+				} else {
+					y += v;
+				}
+			}
+			if (aggregation == AGGREGATION_MEAN) {
+				y /= end - start;
+			}
+			out.add(values.getX(start), y);
+		}
+	}
+
+	@Override
+	void drawSeries(GraphPainter painter, GraphRenderer renderer, Series series, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+		painter.drawBars(renderer, values, graphwidth, graphheight, border, minY, diffY, horstart, barWidth, maxBarWidth, series.color, series.valueDependentColor, 1, null);
+	}
+
+	public void setBarWidth(float barWidth) {
+		this.barWidth = barWidth;
+	}
+
+	public void setMaxBarWidth(float maxBarWidth) {
+		this.maxBarWidth = maxBarWidth;
+	}
+
+	/**
+	 * @see BarGraphView#setBarAggregation(BarGraphView.BarAggregation)
+	 * @param barAggregation AGGREGATION_NONE (default), AGGREGATION_MAX, AGGREGATION_SUM or AGGREGATION_MEAN
+	 */
+	public void setBarAggregation(int barAggregation) {
+		this.barAggregation = barAggregation;
+	}
+}
@@ -0,0 +1,477 @@
+package com.jjoe64.graphview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a graph without a view: settings and data of the series, drawn on any {@link GraphRenderer}.
+ * It has no android dependencies, so reports can be rendered as PNG or SVG on a server, see the
+ * renderers of the core module. GraphView creates one for {@link GraphView#drawGraph(android.graphics.Canvas, int, int)}.
+ *
+ * the layout is the one of GraphView: vertical labels on the left, the graph with horizontal labels,
+ * title and legend right of them.
+ * {@link #draw(GraphRenderer, int, int)} keeps all its state on the stack, so one graph can be drawn
+ * by several threads at the same time, each with its own renderer. The settings and the data must not
+ * change while it is drawn, snapshots of a series never change.
+ */
+abstract public class HeadlessGraph {
+	public static final int LEGEND_TOP = GraphPainter.LEGEND_TOP;
+	public static final int LEGEND_MIDDLE = GraphPainter.LEGEND_MIDDLE;
+	public static final int LEGEND_BOTTOM = GraphPainter.LEGEND_BOTTOM;
+
+	static final class Series {
+		final GraphViewDataSet data;
+		final int color;
+		final float thickness;
+		final String description;
+		final PrimitiveValueDependentColor valueDependentColor;
+
+		Series(GraphViewDataSet data, int color, float thickness, String description, PrimitiveValueDependentColor valueDependentColor) {
+			this.data = data;
+			this.color = color;
+			this.thickness = thickness;
+			this.description = description;
+			this.valueDependentColor = valueDependentColor;
+		}
+	}
+
+	/**
+	 * the part of a data set inside the viewport, plus one point on each side
+	 */
+	static final private class Range implements GraphViewDataSet {
+		private final GraphViewDataSet values;
+		private final int fromIndex;
+		private final int toIndex;
+
+		Range(GraphViewDataSet values, double minX, double maxX) {
+			this.values = values;
+			fromIndex = Math.max(0, bound(values, minX, false) - 1);
+			toIndex = Math.min(values.size(), bound(values, maxX, true) + 1);
+		}
+
+		/**
+		 * @param upper false for the index of the first x >= value, true for the first x > value
+		 */
+		private static int bound(GraphViewDataSet values, double value, boolean upper) {
+			int low = 0;
+			int high = values.size();
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				double x = values.getX(mid);
+				if (x < value || upper && x == value) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		@Override
+		public int size() {
+			return Math.max(0, toIndex - fromIndex);
+		}
+
+		@Override
+		public double getX(int index) {
+			return values.getX(fromIndex + index);
+		}
+
+		@Override
+		public double getY(int index) {
+			return values.getY(fromIndex + index);
+		}
+	}
+
+	final List<Series> series = new ArrayList<Series>();
+
+	private String title;
+	private double viewportStart;
+	private double viewportSize;
+	private boolean manualYAxis;
+	private double manualMinYValue;
+	private double manualMaxYValue;
+	private Decimator decimator;
+	private LabelFormatter verticalLabelFormatter, horizontalLabelFormatter;
+	private int numVertLabels, numHorizLabels;
+
+	private boolean drawGrid = true;
+	private int gridColor = 0xFF888888;
+	private int vertLabelColor = 0xFF444444;
+	private int horizLabelColor = 0xFF444444;
+	private float vertLabelTextSize = 14;
+	private float horizLabelTextSize = 14;
+	private int vertLabelPadding = 8;
+	private int horizLabelPadding = 8;
+	private boolean showVerticalLabels = true;
+	private boolean showHorizontalLabels = true;
+
+	private boolean showLegend;
+	private int legendAlign = LEGEND_MIDDLE;
+	private float legendWidth = 120;
+
+	/**
+	 * @param data e.g. a {@link SeriesSnapshot}, it must be sorted by x
+	 * @param description for the legend, may be null
+	 */
+	public void addSeries(GraphViewDataSet data, int color, float thickness, String description) {
+		addSeries(data, color, thickness, description, null);
+	}
+
+	/**
+	 * @param valueDependentColor color per data point, null to use color. Bar graphs use it
+	 */
+	public void addSeries(GraphViewDataSet data, int color, float thickness, String description, PrimitiveValueDependentColor valueDependentColor) {
+		series.add(new Series(data, color, thickness, description, valueDependentColor));
+	}
+
+	public int getSeriesCount() {
+		return series.size();
+	}
+
+	/**
+	 * draws the graph with vertical labels, title and legend in the given size
+	 */
+	public void draw(GraphRenderer renderer, int width, int height) {
+		// all state of this drawing, the graph may be drawn on other threads at the same time
+		GraphPainter painter = new GraphPainter();
+		LabelBuffer verlabels = new LabelBuffer();
+		LabelBuffer horlabels = new LabelBuffer();
+		GraphViewDataSet[] viewport = new GraphViewDataSet[series.size()];
+		for (int i=0; i<viewport.length; i++) {
+			viewport[i] = viewportValues(series.get(i).data);
+		}
+
+		int textHeight = 0;
+		if (showHorizontalLabels) {
+			renderer.setTextSize(horizLabelTextSize);
+			textHeight = (int) (renderer.getTextHeight() + horizLabelPadding);
+		}
+		float graphheight = height - (2 * GraphPainter.BORDER) - textHeight;
+
+		double maxY = getMaxY(viewport);
+		double minY = getMinY(viewport);
+		int labelsWidth = 0;
+		if (showVerticalLabels) {
+			labelsWidth = fillVerlabels(renderer, verlabels, graphheight, minY, maxY) + vertLabelPadding;
+			GraphPainter.drawVerlabels(renderer, verlabels, labelsWidth - vertLabelPadding, graphheight, vertLabelTextSize, vertLabelColor);
+		} else {
+			fillVerlabels(renderer, verlabels, graphheight, minY, maxY);
+		}
+
+		renderer.save();
+		renderer.translate(labelsWidth, 0);
+		// the points just outside of the viewport must not be drawn over the labels
+		renderer.clipRect(0, 0, width - labelsWidth, height);
+		drawContent(renderer, painter, width - labelsWidth, height, textHeight, graphheight, minY, maxY, viewport, verlabels, horlabels);
+		renderer.restore();
+	}
+
+	private void drawContent(GraphRenderer renderer, GraphPainter painter, int viewWidth, float height, int textHeight, float graphheight,
+			double minY, double maxY, GraphViewDataSet[] viewport, LabelBuffer verlabels, LabelBuffer horlabels) {
+		float border = GraphPainter.BORDER;
+		float horstart = 0;
+		float width = viewWidth - 1;
+		double maxX = getMaxX();
+		double minX = getMinX();
+		double diffX = maxX - minX;
+		float graphwidth = width;
+
+		int numLabels = numHorizLabels > 0 ? numHorizLabels - 1 : (int) (graphwidth/GraphPainter.VERTICAL_LABEL_WIDTH);
+		new LabelGenerator().generate(horlabels, minX, maxX, numLabels, horizontalLabelFormatter, false);
+		GraphPainter.drawBackground(renderer, border, horstart, height, width, graphheight, textHeight, horlabels, verlabels.size(),
+				drawGrid, gridColor, showHorizontalLabels, horizLabelColor, horizLabelTextSize, title);
+
+		if (maxY == minY) {
+			// if min/max is the same, fake it so that we can render a line
+			maxY = maxY*1.05d;
+			minY = minY*0.95d;
+		}
+		double diffY = maxY - minY;
+
+		for (int i=0; i<series.size(); i++) {
+			Series s = series.get(i);
+			GraphViewDataSet values = reduce(s.data, viewport[i], minX, diffX, graphwidth);
+			drawSeries(painter, renderer, s, values, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart);
+		}
+
+		if (showLegend) {
+			int count = series.size();
+			int[] colors = new int[count];
+			String[] descriptions = new String[count];
+			for (int i=0; i<count; i++) {
+				colors[i] = series.get(i).color;
+				descriptions[i] = series.get(i).description;
+			}
+			GraphPainter.drawLegend(renderer, height, width, legendWidth, legendAlign, count, colors, descriptions, horizLabelTextSize);
+		}
+	}
+
+	/**
+	 * writes the vertical labels from top to bottom into the buffer
+	 * @return width of the widest label
+	 */
+	private int fillVerlabels(GraphRenderer renderer, LabelBuffer labels, float graphheight, double min, double max) {
+		int numLabels = numVertLabels > 0 ? numVertLabels - 1 : (int) (graphheight/GraphPainter.HORIZONTAL_LABEL_HEIGHT);
+		LabelGenerator generator = new LabelGenerator();
+		LabelFormatter labelFormatter = verticalLabelFormatter;
+		if (labelFormatter == null) {
+			labelFormatter = generator.prepareFormatter(min, max);
+		}
+		if (max == min) {
+			// if min/max is the same, fake it so that we can render a line
+			max = max*1.05d;
+			min = min*0.95d;
+		}
+		generator.generate(labels, min, max, numLabels, labelFormatter, true);
+
+		renderer.setTextSize(vertLabelTextSize);
+		int maxWidth = 0;
+		for (int i=0; i<labels.size(); i++) {
+			maxWidth = (int) Math.max(maxWidth, renderer.measureText(labels.chars(), labels.start(i), labels.length(i)));
+		}
+		return maxWidth;
+	}
+
+	private boolean hasViewport() {
+		return viewportStart != 0 || viewportSize != 0;
+	}
+
+	/**
+	 * @return the data inside the viewport, plus one point on each side
+	 */
+	private GraphViewDataSet viewportValues(GraphViewDataSet data) {
+		if (!hasViewport()) {
+			return data;
+		}
+		if (data instanceof SeriesSnapshot) {
+			SeriesSnapshot.SubSet values = new SeriesSnapshot.SubSet();
+			values.update((SeriesSnapshot) data, viewportStart, viewportStart+viewportSize);
+			return values;
+		}
+		return new Range(data, viewportStart, viewportStart+viewportSize);
+	}
+
+	/**
+	 * the summary of the level of detail pyramid, if the series has one, and the decimator
+	 * @param viewport visible data of the series
+	 * @return the data that has to be drawn
+	 */
+	GraphViewDataSet reduce(GraphViewDataSet data, GraphViewDataSet viewport, double minX, double diffX, float graphwidth) {
+		GraphViewDataSet values = viewport;
+		if (data instanceof SeriesSnapshot && ((SeriesSnapshot) data).isLevelOfDetail()) {
+			SeriesSnapshot snapshot = (SeriesSnapshot) data;
+			int fromIndex = 0;
+			int toIndex = snapshot.size();
+			if (viewport instanceof SeriesSnapshot.SubSet) {
+				fromIndex = ((SeriesSnapshot.SubSet) viewport).getFromIndex();
+				toIndex = ((SeriesSnapshot.SubSet) viewport).getToIndex();
+			}
+			GraphViewDataBuffer summary = new GraphViewDataBuffer();
+			if (snapshot.getLevelOfDetail(fromIndex, toIndex, graphwidth, summary)) {
+				values = summary;
+			}
+		}
+		if (decimator != null) {
+			values = decimator.decimate(values, minX, diffX, graphwidth, new GraphViewDataBuffer());
+		}
+		return values;
+	}
+
+	/**
+	 * draws the visible data of a series
+	 */
+	abstract void drawSeries(GraphPainter painter, GraphRenderer renderer, Series series, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart);
+
+	private double getMinX() {
+		if (viewportSize != 0) {
+			return viewportStart;
+		}
+		// values must be sorted by x, so the first value has the smallest X value
+		double lowest = Double.NaN;
+		for (int i=0; i<series.size(); i++) {
+			GraphViewDataSet data = series.get(i).data;
+			if (data.size() > 0 && !(data.getX(0) >= lowest)) {
+				lowest = data.getX(0);
+			}
+		}
+		return lowest != lowest ? 0 : lowest;
+	}
+
+	private double getMaxX() {
+		if (viewportSize != 0) {
+			return viewportStart+viewportSize;
+		}
+		// values must be sorted by x, so the last value has the largest X value
+		double highest = Double.NaN;
+		for (int i=0; i<series.size(); i++) {
+			GraphViewDataSet data = series.get(i).data;
+			if (data.size() > 0 && !(data.getX(data.size()-1) <= highest)) {
+				highest = data.getX(data.size()-1);
+			}
+		}
+		return highest != highest ? 0 : highest;
+	}
+
+	private double getMinY(GraphViewDataSet[] viewport) {
+		if (manualYAxis) {
+			return manualMinYValue;
+		}
+		double smallest = Integer.MAX_VALUE;
+		for (int i=0; i<viewport.length; i++) {
+			double value = visibleY(viewport[i], false);
+			if (value < smallest)
+				smallest = value;
+		}
+		return smallest;
+	}
+
+	private double getMaxY(GraphViewDataSet[] viewport) {
+		if (manualYAxis) {
+			return manualMaxYValue;
+		}
+		double largest = Integer.MIN_VALUE;
+		for (int i=0; i<viewport.length; i++) {
+			double value = visibleY(viewport[i], true);
+			if (value > largest)
+				largest = value;
+		}
+		return largest;
+	}
+
+	/**
+	 * via the min/max index of snapshots, other data is scanned
+	 * @return NaN if there is no data
+	 */
+	private static double visibleY(GraphViewDataSet values, boolean largest) {
+		if (values instanceof SeriesSnapshot.SubSet) {
+			SeriesSnapshot.SubSet subSet = (SeriesSnapshot.SubSet) values;
+			return largest ? subSet.getMaxY() : subSet.getMinY();
+		}
+		if (values instanceof SeriesSnapshot) {
+			SeriesSnapshot snapshot = (SeriesSnapshot) values;
+			return largest ? snapshot.getMaxY(0, snapshot.size()) : snapshot.getMinY(0, snapshot.size());
+		}
+		double result = Double.NaN;
+		for (int i=0; i<values.size(); i++) {
+			double y = values.getY(i);
+			result = largest ? MinMaxIndex.max(result, y) : MinMaxIndex.min(result, y);
+		}
+		return result;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	/**
+	 * @param start x-value
+	 * @param size 0 to draw all data
+	 */
+	public void setViewPort(double start, double size) {
+		viewportStart = start;
+		viewportSize = size;
+	}
+
+	public void setManualYAxisBounds(double min, double max) {
+		manualMinYValue = min;
+		manualMaxYValue = max;
+		manualYAxis = true;
+	}
+
+	public void setManualYAxis(boolean manualYAxis) {
+		this.manualYAxis = manualYAxis;
+	}
+
+	/**
+	 * @see GraphView#setDecimator(Decimator)
+	 */
+	public void setDecimator(Decimator decimator) {
+		this.decimator = decimator;
+	}
+
+	/**
+	 * the formatter is called by every thread that draws the graph
+	 * @param verticalLabelFormatter null for the default one
+	 */
+	public void setVerticalLabelFormatter(LabelFormatter verticalLabelFormatter) {
+		this.verticalLabelFormatter = verticalLabelFormatter;
+	}
+
+	/**
+	 * the formatter is called by every thread that draws the graph
+	 * @param horizontalLabelFormatter null for the default one
+	 */
+	public void setHorizontalLabelFormatter(LabelFormatter horizontalLabelFormatter) {
+		this.horizontalLabelFormatter = horizontalLabelFormatter;
+	}
+
+	/**
+	 * @param numVertLabels 0 to fit the labels to the height
+	 */
+	public void setNumVertLabels(int numVertLabels) {
+		this.numVertLabels = numVertLabels;
+	}
+
+	/**
+	 * @param numHorizLabels 0 to fit the labels to the width
+	 */
+	public void setNumHorizLabels(int numHorizLabels) {
+		this.numHorizLabels = numHorizLabels;
+	}
+
+	public void setDrawGrid(boolean drawGrid) {
+		this.drawGrid = drawGrid;
+	}
+
+	public void setGridColor(int gridColor) {
+		this.gridColor = gridColor;
+	}
+
+	public void setVertLabelColor(int vertLabelColor) {
+		this.vertLabelColor = vertLabelColor;
+	}
+
+	public void setHorizLabelColor(int horizLabelColor) {
+		this.horizLabelColor = horizLabelColor;
+	}
+
+	public void setVertLabelTextSize(float vertLabelTextSize) {
+		this.vertLabelTextSize = vertLabelTextSize;
+	}
+
+	public void setHorizLabelTextSize(float horizLabelTextSize) {
+		this.horizLabelTextSize = horizLabelTextSize;
+	}
+
+	public void setVertLabelPadding(int vertLabelPadding) {
+		this.vertLabelPadding = vertLabelPadding;
+	}
+
+	public void setHorizLabelPadding(int horizLabelPadding) {
+		this.horizLabelPadding = horizLabelPadding;
+	}
+
+	public void setShowVerticalLabels(boolean showVerticalLabels) {
+		this.showVerticalLabels = showVerticalLabels;
+	}
+
+	public void setShowHorizontalLabels(boolean showHorizontalLabels) {
+		this.showHorizontalLabels = showHorizontalLabels;
+	}
+
+	public void setShowLegend(boolean showLegend) {
+		this.showLegend = showLegend;
+	}
+
+	/**
+	 * @param legendAlign LEGEND_TOP, LEGEND_MIDDLE (default) or LEGEND_BOTTOM
+	 */
+	public void setLegendAlign(int legendAlign) {
+		this.legendAlign = legendAlign;
+	}
+
+	public void setLegendWidth(float legendWidth) {
+		this.legendWidth = legendWidth;
+	}
+}
@@ -0,0 +1,77 @@
+package com.jjoe64.graphview;
+
+/**
+ * the headless version of {@link LineGraphView}
+ */
+public class HeadlessLineGraph extends HeadlessGraph {
+	public static final int POINTS_NONE = 0;
+	public static final int POINTS_CIRCLE = GraphPainter.MARKER_CIRCLE;
+	public static final int POINTS_SQUARE = GraphPainter.MARKER_SQUARE;
+	public static final int POINTS_TRIANGLE = GraphPainter.MARKER_TRIANGLE;
+
+	private boolean drawBackground;
+	private int backgroundColor = 0xFF14283C;
+	private int[] backgroundGradientColors;
+	private boolean drawSmoothLine;
+	private int seriesPoints = POINTS_NONE;
+	private float seriesPointSize;
+	private float maxSeriesPointDensity = Float.MAX_VALUE;
+
+	@Override
+	void drawSeries(GraphPainter painter, GraphRenderer renderer, Series series, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+		int size = values.size();
+		float[] points = painter.project(values, minX, minY, diffX, diffY, graphwidth, graphheight, horstart + 1, border + graphheight);
+		if (drawBackground) {
+			painter.drawArea(renderer, points, size, border, graphheight + border, backgroundColor, backgroundGradientColors);
+		}
+		painter.drawLine(renderer, points, size, series.thickness, series.color, drawSmoothLine);
+		if (seriesPoints != POINTS_NONE && size <= maxSeriesPointDensity * graphwidth) {
+			GraphPainter.drawMarkers(renderer, points, size, seriesPoints, seriesPointSize, series.color);
+		}
+	}
+
+	/**
+	 * @param drawBackground true to fill the area under the graph line
+	 */
+	public void setDrawBackground(boolean drawBackground) {
+		this.drawBackground = drawBackground;
+	}
+
+	/**
+	 * @param color color of the background under the graph line
+	 */
+	public void setBackgroundFillColor(int color) {
+		backgroundColor = color;
+		backgroundGradientColors = null;
+	}
+
+	/**
+	 * fills the background under the graph line with a vertical gradient
+	 * @param topColor color at the top edge of the graph
+	 * @param bottomColor color at the bottom edge of the graph
+	 */
+	public void setBackgroundFillGradient(int topColor, int bottomColor) {
+		backgroundGradientColors = new int[] {topColor, bottomColor};
+	}
+
+	public void setDrawSmoothLine(boolean drawSmoothLine) {
+		this.drawSmoothLine = drawSmoothLine;
+	}
+
+	/**
+	 * draws a marker on every data point, in the color of the series
+	 * @param seriesPoints POINTS_NONE (default), POINTS_CIRCLE, POINTS_SQUARE or POINTS_TRIANGLE
+	 * @param size radius of circles and triangles, edge length of squares
+	 */
+	public void setSeriesPoints(int seriesPoints, float size) {
+		this.seriesPoints = seriesPoints;
+		this.seriesPointSize = size;
+	}
+
+	/**
+	 * @see LineGraphView#setMaxSeriesPointDensity(float)
+	 */
+	public void setMaxSeriesPointDensity(float maxSeriesPointDensity) {
+		this.maxSeriesPointDensity = maxSeriesPointDensity;
+	}
+}
@@ -0,0 +1,72 @@
+package com.jjoe64.graphview;
+
+/**
+ * data provider for data that is already in memory, to use a paged series without a backend.
+ * the chunks are views of the columns, nothing is copied until the series takes them.
+ */
+public class InMemoryDataProvider implements SeriesDataProvider {
+	private final double[] valuesX;
+	private final double[] valuesY;
+
+	/**
+	 * the arrays are used directly, not copied
+	 * @param valuesX x values, have to be sorted
+	 * @param valuesY y values, same length as valuesX
+	 */
+	public InMemoryDataProvider(double[] valuesX, double[] valuesY) {
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		this.valuesX = valuesX;
+		this.valuesY = valuesY;
+	}
+
+	@Override
+	public double getMinX() {
+		return valuesX.length > 0 ? valuesX[0] : 0;
+	}
+
+	@Override
+	public double getMaxX() {
+		return valuesX.length > 0 ? valuesX[valuesX.length-1] : 0;
+	}
+
+	@Override
+	public GraphViewDataSet load(double fromX, double toX) {
+		final int from = lowerBound(fromX);
+		final int to = lowerBound(toX);
+		return new GraphViewDataSet() {
+			@Override
+			public int size() {
+				return to - from;
+			}
+
+			@Override
+			public double getX(int index) {
+				return valuesX[from + index];
+			}
+
+			@Override
+			public double getY(int index) {
+				return valuesY[from + index];
+			}
+		};
+	}
+
+	/**
+	 * @return index of the first value with x >= valueX, or length if there is none
+	 */
+	private int lowerBound(double valueX) {
+		int low = 0;
+		int high = valuesX.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (valuesX[mid] < valueX) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
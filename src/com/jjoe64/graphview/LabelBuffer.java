@@ -0,0 +1,118 @@
+package com.jjoe64.graphview;
+
+/**
+ * the labels of one axis, stored in one reusable char array.
+ * GraphView draws and measures them with the char[] methods of Canvas and Paint,
+ * so labels of a {@link BufferedLabelFormatter} need no Strings at all.
+ */
+class LabelBuffer {
+	private char[] chars = new char[4 * BufferedLabelFormatter.MAX_LENGTH];
+
+	/**
+	 * label i is chars[offsets[i]] to chars[offsets[i+1]]
+	 */
+	private int[] offsets = new int[8];
+	private int size;
+
+	LabelBuffer() {
+	}
+
+	/**
+	 * @param labels static labels
+	 */
+	LabelBuffer(String[] labels) {
+		for (int i=0; i<labels.length; i++) {
+			add(labels[i]);
+		}
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	void add(String label) {
+		int length = label.length();
+		int end = prepareAdd(length);
+		label.getChars(0, length, chars, end);
+		offsets[++size] = end + length;
+	}
+
+	void add(BufferedLabelFormatter formatter, double value) {
+		int end = prepareAdd(BufferedLabelFormatter.MAX_LENGTH);
+		int length = formatter.formatLabel(value, chars, end);
+		offsets[++size] = end + length;
+	}
+
+	/**
+	 * grows the arrays for one more label
+	 * @return offset of the new label
+	 */
+	private int prepareAdd(int length) {
+		if (size + 2 > offsets.length) {
+			int[] newOffsets = new int[offsets.length * 2];
+			System.arraycopy(offsets, 0, newOffsets, 0, size + 1);
+			offsets = newOffsets;
+		}
+		int end = offsets[size];
+		if (end + length > chars.length) {
+			char[] newChars = new char[Math.max(chars.length * 2, end + length)];
+			System.arraycopy(chars, 0, newChars, 0, end);
+			chars = newChars;
+		}
+		return end;
+	}
+
+	/**
+	 * the array is replaced when it grows, do not keep it
+	 */
+	char[] chars() {
+		return chars;
+	}
+
+	int start(int index) {
+		return offsets[index];
+	}
+
+	int length(int index) {
+		return offsets[index+1] - offsets[index];
+	}
+
+	/**
+	 * @return true if both contain the same labels
+	 */
+	boolean contentEquals(LabelBuffer other) {
+		if (size != other.size || offsets[size] != other.offsets[size]) {
+			return false;
+		}
+		for (int i=1; i<=size; i++) {
+			if (offsets[i] != other.offsets[i]) {
+				return false;
+			}
+		}
+		for (int i=0; i<offsets[size]; i++) {
+			if (chars[i] != other.chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * copies the labels of other into this buffer
+	 */
+	void set(LabelBuffer other) {
+		if (chars.length < other.offsets[other.size]) {
+			chars = new char[other.chars.length];
+		}
+		if (offsets.length < other.size + 1) {
+			offsets = new int[other.offsets.length];
+		}
+		System.arraycopy(other.chars, 0, chars, 0, other.offsets[other.size]);
+		System.arraycopy(other.offsets, 0, offsets, 0, other.size + 1);
+		size = other.size;
+	}
+}
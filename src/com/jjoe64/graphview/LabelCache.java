@@ -0,0 +1,47 @@
+package com.jjoe64.graphview;
+
+/**
+ * small cache of label strings by value, so labels that stay the same while scrolling
+ * or appending data are not formatted again.
+ * direct mapped: a value that maps to an occupied slot replaces the old entry.
+ */
+class LabelCache {
+	private static final int SIZE_BITS = 6;
+	private static final int SIZE = 1 << SIZE_BITS;
+
+	private final double[] keys = new double[SIZE];
+	private final String[] labels = new String[SIZE];
+
+	/**
+	 * @param key
+	 * @return the cached label or null
+	 */
+	String get(double key) {
+		int i = index(key);
+		String label = labels[i];
+		if (label != null && Double.doubleToLongBits(keys[i]) == Double.doubleToLongBits(key)) {
+			return label;
+		}
+		return null;
+	}
+
+	void put(double key, String label) {
+		int i = index(key);
+		keys[i] = key;
+		labels[i] = label;
+	}
+
+	void clear() {
+		for (int i=0; i<SIZE; i++) {
+			labels[i] = null;
+		}
+	}
+
+	/**
+	 * fibonacci hashing, the top bits of the product depend on all bits of the value
+	 */
+	private static int index(double key) {
+		long bits = Double.doubleToLongBits(key);
+		return (int) ((bits * 0x9E3779B97F4A7C15L) >>> (64 - SIZE_BITS));
+	}
+}
@@ -0,0 +1,89 @@
+package com.jjoe64.graphview;
+
+/**
+ * writes numbers into char buffers without creating objects.
+ * used by the {@link BufferedLabelFormatter} implementations.
+ */
+final class LabelDigits {
+	static final long[] POWERS_OF_TEN = {
+		1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+	};
+
+	/**
+	 * largest value that is written digit by digit, larger values fall back to Double.toString
+	 */
+	private static final double MAX_EXACT = 9.0E18;
+
+	private LabelDigits() {
+	}
+
+	/**
+	 * writes a decimal number, rounded half even to at most fractionDigits, trailing zeros of the fraction are dropped.
+	 * @param value
+	 * @param fractionDigits 0 to 9
+	 * @param groupingSeparator separator for groups of 3 integer digits, 0 for none
+	 * @param decimalSeparator
+	 * @param minusSign
+	 * @param buffer at least {@link BufferedLabelFormatter#MAX_LENGTH} free chars from offset
+	 * @param offset
+	 * @return number of chars written
+	 */
+	static int writeDecimal(double value, int fractionDigits, char groupingSeparator, char decimalSeparator, char minusSign, char[] buffer, int offset) {
+		long pow = POWERS_OF_TEN[fractionDigits];
+		double scaled = Math.rint(Math.abs(value) * pow);
+		if (value != value || scaled >= MAX_EXACT) {
+			// NaN, infinity or too large for a long, rare enough to allocate
+			String s = Double.toString(value);
+			s.getChars(0, s.length(), buffer, offset);
+			return s.length();
+		}
+
+		long n = (long) scaled;
+		long integer = n / pow;
+		long fraction = n % pow;
+		int digits = fractionDigits;
+		while (digits > 0 && fraction % 10 == 0) {
+			fraction /= 10;
+			digits--;
+		}
+
+		int pos = offset;
+		if (value < 0 && n != 0) {
+			buffer[pos++] = minusSign;
+		}
+		pos += writeInteger(integer, groupingSeparator, buffer, pos);
+		if (digits > 0) {
+			buffer[pos++] = decimalSeparator;
+			for (int i=digits-1; i>=0; i--) {
+				buffer[pos+i] = (char) ('0' + fraction % 10);
+				fraction /= 10;
+			}
+			pos += digits;
+		}
+		return pos - offset;
+	}
+
+	/**
+	 * @param n >= 0
+	 * @param groupingSeparator separator for groups of 3 digits, 0 for none
+	 * @return number of chars written
+	 */
+	static int writeInteger(long n, char groupingSeparator, char[] buffer, int offset) {
+		int digits = 1;
+		for (long rest = n / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		int length = groupingSeparator != 0 ? digits + (digits-1) / 3 : digits;
+		int pos = offset + length;
+		int written = 0;
+		do {
+			if (groupingSeparator != 0 && written > 0 && written % 3 == 0) {
+				buffer[--pos] = groupingSeparator;
+			}
+			buffer[--pos] = (char) ('0' + n % 10);
+			n /= 10;
+			written++;
+		} while (n > 0);
+		return length;
+	}
+}
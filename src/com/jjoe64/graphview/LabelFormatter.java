@@ -1,46 +1,58 @@
 package com.jjoe64.graphview;
 
-import java.text.NumberFormat;
-import java.util.Locale;
-
 
 public interface LabelFormatter {
 	public String formatLabel(double value);
 
 	/**
 	 * http://stackoverflow.com/questions/4753251/how-to-go-about-formatting-1200-to-1-2k-in-java
+	 * writes into char buffers, see {@link BufferedLabelFormatter}.
 	 */
-	public static class MetricLabelFormatter implements LabelFormatter {
+	public static class MetricLabelFormatter implements BufferedLabelFormatter {
 		
-		private NumberFormat formatter;
+		private final BufferedLabelFormatter.DecimalLabelFormatter formatter;
 
 		public MetricLabelFormatter() {
-			formatter = NumberFormat.getNumberInstance(Locale.getDefault());
+			formatter = new BufferedLabelFormatter.DecimalLabelFormatter(3);
 		}
 
 		private static char[] c = new char[]{'k', 'm', 'b', 't'};
 
 		/**
-		 * Recursive implementation, invokes itself for each factor of a thousand, increasing the class on each invokation.
+		 * one step for each factor of a thousand, increasing the class on each step.
+		 * the number is truncated to one decimal of its class, the decimal is only shown below 10.
 		 * @param n the number to format
-		 * @param iteration in fact this is the class from the array c
-		 * @return a String representing the number n formatted in a cool looking way.
+		 * @return number of chars written
 		 */
-		private static String coolFormat(double n, int iteration) {
-			double d = ((long) n / 100) / 10.0;
-			boolean isRound = (d * 10) %10 == 0;//true if the decimal part is equal to 0 (then it's trimmed anyway)
-			return (d < 1000? //this determines the class, i.e. 'k', 'm' etc
-					((d > 99.9 || isRound || (!isRound && d > 9.99)? //this decides whether to trim the decimals
-							(int) d * 10 / 10 : d + "" // (int) d * 10 / 10 drops the decimal
-							) + "" + c[iteration]) 
-							: coolFormat(d, iteration+1));
+		private static int coolFormat(double n, char[] buffer, int offset) {
+			// tenths of the current class
+			long tenths = (long) n / 100;
+			int iteration = 0;
+			while (tenths >= 10000 && iteration < c.length-1) {
+				tenths = tenths / 10 / 100;
+				iteration++;
+			}
+			int pos = offset;
+			pos += LabelDigits.writeInteger(tenths / 10, (char) 0, buffer, pos);
+			boolean isRound = tenths % 10 == 0; // then the decimal is trimmed anyway
+			if (!isRound && tenths < 100) {
+				buffer[pos++] = '.';
+				buffer[pos++] = (char) ('0' + tenths % 10);
+			}
+			buffer[pos++] = c[iteration];
+			return pos - offset;
+		}
 
+		@Override
+		public int formatLabel(double value, char[] buffer, int offset) {
+			return value < 1000 ? formatter.formatLabel(value, buffer, offset) : coolFormat(value, buffer, offset);
 		}
-		
+
 		@Override
 		public String formatLabel(double value) {
-			return value < 1000 ? formatter.format(value) : coolFormat(value, 0);
+			char[] buffer = new char[MAX_LENGTH];
+			return new String(buffer, 0, formatLabel(value, buffer, 0));
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.jjoe64.graphview;
+
+import com.jjoe64.graphview.BufferedLabelFormatter.DecimalLabelFormatter;
+
+/**
+ * generates the labels of one axis into a {@link LabelBuffer}.
+ * holds the default formatter, that depends on the range, and the cache for formatters
+ * that only return Strings. it has no android dependencies, like the data classes.
+ */
+class LabelGenerator {
+	private volatile DecimalLabelFormatter formatter;
+	private final LabelCache cache = new LabelCache();
+
+	/**
+	 * the number of fraction digits depends on the magnitude of the range.
+	 * the formatter is only replaced if that changes.
+	 * @return the formatter for the range
+	 */
+	DecimalLabelFormatter prepareFormatter(double lowestvalue, double highestvalue) {
+		int digits;
+		if (highestvalue - lowestvalue < 0.1) {
+			digits = 6;
+		} else if (highestvalue - lowestvalue < 1) {
+			digits = 4;
+		} else if (highestvalue - lowestvalue < 20) {
+			digits = 3;
+		} else if (highestvalue - lowestvalue < 100) {
+			digits = 1;
+		} else {
+			digits = 0;
+		}
+		DecimalLabelFormatter f = formatter;
+		if (f == null || f.getFractionDigits() != digits) {
+			f = new DecimalLabelFormatter(digits);
+			formatter = f;
+		}
+		return f;
+	}
+
+	/**
+	 * @return the formatter of the last generated labels, or null
+	 */
+	DecimalLabelFormatter getFormatter() {
+		return formatter;
+	}
+
+	/**
+	 * the cached labels are dropped, if the custom formatter was changed
+	 */
+	void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * writes numLabels+1 labels from min to max into the buffer.
+	 * @param labels is cleared first
+	 * @param labelFormatter custom formatter or null for the default one
+	 * @param descending true to start with max
+	 * @return number of labels that were written without creating a String
+	 */
+	int generate(LabelBuffer labels, double min, double max, int numLabels, LabelFormatter labelFormatter, boolean descending) {
+		if (labelFormatter == null) {
+			labelFormatter = prepareFormatter(min, max);
+		}
+		labels.clear();
+		int withoutAllocation = 0;
+		for (int j=0; j<=numLabels; j++) {
+			int i = descending ? numLabels - j : j;
+			if (addLabel(labels, min + ((max-min)*i/numLabels), labelFormatter)) {
+				withoutAllocation++;
+			}
+		}
+		return withoutAllocation;
+	}
+
+	/**
+	 * writes the label of a value into the buffer.
+	 * labels of formatters that only return Strings are taken from the cache if possible.
+	 * @return false if a String was created
+	 */
+	private boolean addLabel(LabelBuffer labels, double value, LabelFormatter labelFormatter) {
+		if (labelFormatter instanceof BufferedLabelFormatter) {
+			labels.add((BufferedLabelFormatter) labelFormatter, value);
+			return true;
+		}
+		String label = cache.get(value);
+		boolean cached = label != null;
+		if (!cached) {
+			label = labelFormatter.formatLabel(value);
+			cache.put(value, label);
+		}
+		labels.add(label);
+		return cached;
+	}
+}
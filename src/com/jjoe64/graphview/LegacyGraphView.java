@@ -0,0 +1,40 @@
+package com.jjoe64.graphview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+
+import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
+
+/**
+ * base class for graphs that draw GraphViewData objects, like GraphView subclasses did before the
+ * series kept their data in columns.
+ * A graph that was written for the old signature extends this class instead of GraphView and keeps
+ * its drawDataSeries method as it is.
+ * Every visible point is copied into a new GraphViewData object per frame, new graphs extend
+ * GraphView and implement {@link GraphView#drawDataSeries(Canvas, GraphViewDataSet, float, float, float, double, double, double, double, float, GraphViewSeriesStyle)}.
+ */
+abstract public class LegacyGraphView extends GraphView {
+	public LegacyGraphView(Context context) {
+		super(context);
+	}
+
+	public LegacyGraphView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	/**
+	 * copies the data into GraphViewData objects and calls
+	 * {@link #drawDataSeries(Canvas, GraphViewData[], float, float, float, double, double, double, double, float, GraphViewSeriesStyle)}
+	 */
+	@Override
+	public void drawDataSeries(Canvas canvas, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+		GraphViewData[] data = new GraphViewData[values.size()];
+		for (int i=0; i<data.length; i++) {
+			data[i] = new GraphViewData(values.getX(i), values.getY(i));
+		}
+		drawDataSeries(canvas, data, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, style);
+	}
+
+	abstract public void drawDataSeries(Canvas canvas, GraphViewData[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style);
+}
@@ -0,0 +1,181 @@
+package com.jjoe64.graphview;
+
+/**
+ * multi-resolution summary (pyramid) of a series.
+ * level k groups the data into buckets of 2^k points and stores the index of the minimal
+ * and the maximal y value of every bucket. first and last point of a bucket are implicit.
+ * a bucket is computed from its two child buckets, so a changed value updates
+ * one bucket per level in O(log n).
+ *
+ * drawing a level emits first, min, max and last point of every bucket, in the order of x,
+ * so the line looks like the line of the raw data, including all peaks.
+ *
+ * the pyramid works on the physical positions of the columns, the caller has to
+ * map logical ranges (ring buffer wrap-around).
+ */
+class LevelOfDetail {
+	private double[] valuesX;
+	private double[] valuesY;
+	private int used;
+
+	/**
+	 * [level-1][bucket] => physical index of the min/max point, -1 if the bucket is empty
+	 */
+	private int[][] minIndex;
+	private int[][] maxIndex;
+
+	/**
+	 * recreates the pyramid in O(n)
+	 * @param valuesX the x column
+	 * @param valuesY the y column
+	 * @param used number of valid values, starting at index 0
+	 */
+	void rebuild(double[] valuesX, double[] valuesY, int used) {
+		this.valuesX = valuesX;
+		this.valuesY = valuesY;
+		this.used = used;
+
+		int levels = 0;
+		while ((1L << levels) < valuesY.length) {
+			levels++;
+		}
+		minIndex = new int[levels][];
+		maxIndex = new int[levels][];
+		for (int k=1; k<=levels; k++) {
+			int buckets = (int) ((valuesY.length + (1L << k) - 1) >> k);
+			minIndex[k-1] = new int[buckets];
+			maxIndex[k-1] = new int[buckets];
+			for (int b=0; b<buckets; b++) {
+				summarizeBucket(k, b);
+			}
+		}
+	}
+
+	/**
+	 * the value at the index has changed
+	 * @param index physical index in the columns
+	 * @param used number of valid values, starting at index 0
+	 */
+	void update(int index, int used) {
+		this.used = used;
+		for (int k=1; k<=minIndex.length; k++) {
+			summarizeBucket(k, index >> k);
+		}
+	}
+
+	/**
+	 * the values of a range have changed.
+	 * every bucket is recomputed only once.
+	 * @param from physical index, inclusive
+	 * @param to physical index, exclusive
+	 * @param used number of valid values, starting at index 0
+	 */
+	void update(int from, int to, int used) {
+		if (from >= to) {
+			return;
+		}
+		this.used = used;
+		for (int k=1; k<=minIndex.length; k++) {
+			int last = (to-1) >> k;
+			for (int b=from >> k; b<=last; b++) {
+				summarizeBucket(k, b);
+			}
+		}
+	}
+
+	/**
+	 * @return number of levels, level 1 to getLevelCount() can be emitted
+	 */
+	int getLevelCount() {
+		return minIndex.length;
+	}
+
+	private void summarizeBucket(int k, int b) {
+		int a, c;
+		int mnA, mxA, mnC, mxC;
+		if (k == 1) {
+			a = 2*b;
+			c = 2*b+1;
+			mnA = mxA = a < used ? a : -1;
+			mnC = mxC = c < used ? c : -1;
+		} else {
+			int[] childMin = minIndex[k-2];
+			int[] childMax = maxIndex[k-2];
+			a = 2*b;
+			c = 2*b+1;
+			mnA = childMin[a];
+			mxA = childMax[a];
+			mnC = c < childMin.length ? childMin[c] : -1;
+			mxC = c < childMax.length ? childMax[c] : -1;
+		}
+		minIndex[k-1][b] = smaller(mnA, mnC);
+		maxIndex[k-1][b] = larger(mxA, mxC);
+	}
+
+	private int smaller(int a, int b) {
+		if (a == -1) return b;
+		if (b == -1) return a;
+		return valuesY[b] < valuesY[a] || valuesY[a] != valuesY[a] ? b : a;
+	}
+
+	private int larger(int a, int b) {
+		if (a == -1) return b;
+		if (b == -1) return a;
+		return valuesY[b] > valuesY[a] || valuesY[a] != valuesY[a] ? b : a;
+	}
+
+	/**
+	 * writes the points of a level for a physical range into out.
+	 * buckets that are only partly inside the range are split into their children,
+	 * so no data outside of the range is emitted. All values of the range must be valid.
+	 * @param level 1 to getLevelCount()
+	 * @param from physical index, inclusive
+	 * @param to physical index, exclusive
+	 * @param out
+	 */
+	void emit(int level, int from, int to, GraphViewDataBuffer out) {
+		if (from >= to) {
+			return;
+		}
+		int last = (to-1) >> level;
+		for (int b=from >> level; b<=last; b++) {
+			emitBucket(level, b, from, to, out);
+		}
+	}
+
+	private void emitBucket(int k, int b, int from, int to, GraphViewDataBuffer out) {
+		int bucketStart = b << k;
+		int bucketEnd = (b+1) << k;
+		if (bucketEnd <= from || bucketStart >= to) {
+			// outside
+			return;
+		}
+		if (k == 0) {
+			out.add(valuesX[bucketStart], valuesY[bucketStart]);
+		} else if (bucketStart >= from && bucketEnd <= to) {
+			// complete buckets of the range are not changed by appends, so this works on snapshots
+			// first, min, max, last in the order of x
+			int mn = minIndex[k-1][b];
+			int mx = maxIndex[k-1][b];
+			int last = bucketStart;
+			out.add(valuesX[last], valuesY[last]);
+			int i = Math.min(mn, mx);
+			if (i > last) {
+				out.add(valuesX[i], valuesY[i]);
+				last = i;
+			}
+			i = Math.max(mn, mx);
+			if (i > last) {
+				out.add(valuesX[i], valuesY[i]);
+				last = i;
+			}
+			i = bucketEnd-1;
+			if (i > last) {
+				out.add(valuesX[i], valuesY[i]);
+			}
+		} else {
+			emitBucket(k-1, 2*b, from, to, out);
+			emitBucket(k-1, 2*b+1, from, to, out);
+		}
+	}
+}
@@ -2,11 +2,14 @@ package com.jjoe64.graphview;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
 import android.graphics.Path;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
 
@@ -20,8 +23,8 @@ import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
  */
 public class LineGraphView extends GraphView {
 
-	private final Paint paintBackground = new Paint();
-	Path path = new Path();
+	private int backgroundColor;
+	private int[] backgroundGradientColors;
 	private boolean drawBackground;
 
 	private boolean drawBullets;
@@ -29,6 +32,11 @@ public class LineGraphView extends GraphView {
 	private SeriesDrawer seriesDrawer;
 	private boolean drawSmoothLine;
 
+	/**
+	 * series points per pixel of graph width, above that no markers are drawn
+	 */
+	private float maxSeriesPointDensity = Float.MAX_VALUE;
+
 	public LineGraphView(Context context, AttributeSet attrs) {
 		super(context, attrs);
 		init();
@@ -66,123 +74,66 @@ public class LineGraphView extends GraphView {
 	}
 
 	public void init() {
-		paintBackground.setARGB(255, 20, 40, 60);
-		paintBackground.setStrokeWidth(4);
+		backgroundColor = Color.argb(255, 20, 40, 60);
 	}
 
 
 	@Override
-	public void drawDataSeries(Canvas canvas, GraphViewData[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
-		// draw background
-		float lastEndY = 0;
-		float lastEndX = 0;
+	public void drawDataSeries(Canvas canvas, GraphViewDataSet values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+		int size = values.size();
+		GraphRenderer renderer = getRenderer(canvas);
 
-		path.reset();
+		// project all points at once: x0, y0, x1, y1, ...
+		float[] points = painter.project(values, minX, minY, diffX, diffY, graphwidth, graphheight, horstart + 1, border + graphheight);
 
+		// draw background: area under the line as one closed path down to the bottom edge
 		if (drawBackground) {
-			float startY = graphheight + border;
-			for (int i = 0; i < values.length; i++) {
-				double valY = values[i].valueY - minY;
-				double ratY = valY / diffY;
-				double y = graphheight * ratY;
-
-				double valX = values[i].valueX - minX;
-				double ratX = valX / diffX;
-				double x = graphwidth * ratX;
-
-				float endX = (float) x + (horstart + 1);
-				float endY = (float) (border - y) + graphheight +2;
-
-				if (i > 0) {
-					// fill space between last and current point
-					double numSpace = ((endX - lastEndX) / 3f) +1;
-					for (int xi=0; xi<numSpace; xi++) {
-						float spaceX = (float) (lastEndX + ((endX-lastEndX)*xi/(numSpace-1)));
-						float spaceY = (float) (lastEndY + ((endY-lastEndY)*xi/(numSpace-1)));
-
-						// start => bottom edge
-						float startX = spaceX;
-
-						// do not draw over the left edge
-						if (startX-horstart > 1) {
-							canvas.drawLine(startX, startY, spaceX, spaceY, paintBackground);
-						}
-					}
-				}
-
-				lastEndY = endY;
-				lastEndX = endX;
-			}
+			countDrawCalls(painter.drawArea(renderer, points, size, border, graphheight + border, backgroundColor, backgroundGradientColors));
 		}
 
 		// draw data
+		countDrawCalls(painter.drawLine(renderer, points, size, style.thickness, style.color, drawSmoothLine));
+
+		// the series drawers use the paint
 		paint.setStrokeWidth(style.thickness);
 		paint.setColor(style.color);
 
-		lastEndY = 0;
-		lastEndX = 0;
-
-		for (int i = 0; i < values.length; i++) {
-			double valY = values[i].valueY - minY;
-			double ratY = valY / diffY;
-			float y = (float) (graphheight * ratY);
-
-			double valX = values[i].valueX - minX;
-			double ratX = valX / diffX;
-			float x = (float) (graphwidth * ratX);
-
-			if (i > 0) {
-				float startX = (float) lastEndX + (horstart + 1);
-				float startY = (float) (border - lastEndY) + graphheight;
-				float endX = (float) x + (horstart + 1);
-				float endY = (float) (border - y) + graphheight;
-
-				float midX = (startX + endX) / 2;
-				float midY = (startY + endY) / 2;
-
-				if (i == 1) {
-					path.lineTo(midX, midY);
-				} else {
-					path.quadTo(startX, startY, midX, midY);
-				}
-
-				if (!drawSmoothLine) {
-					canvas.drawLine(startX, startY, endX, endY, paint);
-				}
-
-				if (drawBullets && seriesDrawer != null) {
-					seriesDrawer.drawPoint(canvas, endX, endY, paint);
-				}
+		// markers are skipped if they would only cover the line
+		if (drawBullets && seriesDrawer != null && size <= maxSeriesPointDensity * graphwidth) {
+			if (seriesDrawer instanceof BatchSeriesDrawer) {
+				((BatchSeriesDrawer) seriesDrawer).drawPoints(canvas, points, size, paint);
+				// the sprites of the triangles are stamped one by one
+				countDrawCalls(seriesDrawer instanceof TriangleSeriesDrawer ? size : 1);
 			} else {
-				float xPos = x + (horstart + 1);
-				float yPos = (float) ((border - lastEndY) + graphheight);
-
-				if (drawBullets && seriesDrawer != null) {
-					seriesDrawer.drawPoint(canvas, xPos, yPos, paint);
+				for (int i = 0; i < size; i++) {
+					seriesDrawer.drawPoint(canvas, points[2*i], points[2*i+1], paint);
 				}
-
-				path.moveTo(xPos, yPos);
+				countDrawCalls(size);
 			}
-
-			lastEndY = y;
-			lastEndX = x;
-		}
-
-		if (drawSmoothLine) {
-			Style oldStyle = paint.getStyle();
-			paint.setStyle(Style.STROKE);
-			canvas.drawPath(path, paint);
-			paint.setStyle(oldStyle);
 		}
-
-		// curve.draw(canvas, paint);
 	}
 
 	public interface SeriesDrawer {
 		void drawPoint(Canvas canvas, float x, float y, Paint paint);
 	}
 
-	public class CircleSeriesDrawer implements SeriesDrawer {
+	/**
+	 * series drawer that draws all points of a series at once
+	 */
+	public interface BatchSeriesDrawer extends SeriesDrawer {
+		/**
+		 * @param canvas
+		 * @param points x0, y0, x1, y1, ...
+		 * @param count number of points
+		 * @param paint
+		 */
+		void drawPoints(Canvas canvas, float[] points, int count, Paint paint);
+	}
+
+	/**
+	 * circles are drawn as round points with one drawPoints call
+	 */
+	public class CircleSeriesDrawer implements BatchSeriesDrawer {
 		private int radius;
 
 		public CircleSeriesDrawer() {
@@ -198,14 +149,34 @@ public class LineGraphView extends GraphView {
 			canvas.drawCircle(x, y, radius, paint);
 		}
 
+		@Override
+		public void drawPoints(Canvas canvas, float[] points, int count, Paint paint) {
+			drawCappedPoints(canvas, points, count, paint, 2*radius, Paint.Cap.ROUND);
+		}
+
 		public void setRadius(int radius) {
 			this.radius = radius;
 		}
 	}
 
-	public class TriangleSeriesDrawer implements SeriesDrawer {
+	/**
+	 * the triangle is rendered once per color and size into a small bitmap that is stamped for every point
+	 */
+	public class TriangleSeriesDrawer implements BatchSeriesDrawer {
+		/**
+		 * more colors than this, e.g. from a value dependent color, start the cache again
+		 */
+		private static final int MAX_SPRITES = 16;
 
 		private int size;
+		private final Path trianglePath = new Path();
+		private final Paint spritePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+		/**
+		 * one sprite per color, all of the size spriteSize
+		 */
+		private final SparseArray<Bitmap> sprites = new SparseArray<Bitmap>();
+		private int spriteSize;
 
 		public TriangleSeriesDrawer() {
 			this(getResources().getDimensionPixelSize(R.dimen.series_size));
@@ -217,12 +188,44 @@ public class LineGraphView extends GraphView {
 
 		@Override
 		public void drawPoint(Canvas canvas, float x, float y, Paint paint) {
-			Path path = new Path();
-			path.moveTo(x, y - size);
-			path.lineTo(x + size, y + size);
-			path.lineTo(x - size, y + size);
-			path.close();
-			canvas.drawPath(path, paint);
+			Bitmap sprite = prepareSprite(paint.getColor());
+			canvas.drawBitmap(sprite, x - size - 1, y - size - 1, null);
+		}
+
+		@Override
+		public void drawPoints(Canvas canvas, float[] points, int count, Paint paint) {
+			Bitmap sprite = prepareSprite(paint.getColor());
+			float offset = size + 1;
+			for (int i = 0; i < count; i++) {
+				canvas.drawBitmap(sprite, points[2*i] - offset, points[2*i+1] - offset, null);
+			}
+		}
+
+		/**
+		 * @return the triangle in the color, with 1px room for anti-aliasing
+		 */
+		private Bitmap prepareSprite(int color) {
+			if (spriteSize != size || sprites.size() >= MAX_SPRITES) {
+				// not recycled: with hardware acceleration, display lists of earlier frames may still
+				// draw them. dropping the references is enough, the garbage collector frees them.
+				sprites.clear();
+				spriteSize = size;
+			}
+			Bitmap sprite = sprites.get(color);
+			if (sprite == null) {
+				int dimension = 2*size + 2;
+				sprite = Bitmap.createBitmap(Math.max(1, dimension), Math.max(1, dimension), Bitmap.Config.ARGB_8888);
+				float center = size + 1;
+				trianglePath.rewind();
+				trianglePath.moveTo(center, center - size);
+				trianglePath.lineTo(center + size, center + size);
+				trianglePath.lineTo(center - size, center + size);
+				trianglePath.close();
+				spritePaint.setColor(color);
+				new Canvas(sprite).drawPath(trianglePath, spritePaint);
+				sprites.put(color, sprite);
+			}
+			return sprite;
 		}
 
 		public void setRadius(int radius) {
@@ -231,7 +234,10 @@ public class LineGraphView extends GraphView {
 	}
 
 
-	public class SquareSeriesDrawer implements SeriesDrawer {
+	/**
+	 * squares are drawn as square points with one drawPoints call
+	 */
+	public class SquareSeriesDrawer implements BatchSeriesDrawer {
 		private int size;
 
 		public SquareSeriesDrawer() {
@@ -248,12 +254,33 @@ public class LineGraphView extends GraphView {
 			canvas.drawRect(x - halfSize, y - halfSize, x + halfSize, y + halfSize, paint);
 		}
 
+		@Override
+		public void drawPoints(Canvas canvas, float[] points, int count, Paint paint) {
+			drawCappedPoints(canvas, points, count, paint, size/2*2, Paint.Cap.SQUARE);
+		}
+
 		public void setSize(int size) {
 			this.size = size;
 		}
 	}
 
 
+	/**
+	 * draws points as dots of the stroke width with the cap, restores the paint afterwards
+	 */
+	private static void drawCappedPoints(Canvas canvas, float[] points, int count, Paint paint, float width, Paint.Cap cap) {
+		float oldWidth = paint.getStrokeWidth();
+		Paint.Cap oldCap = paint.getStrokeCap();
+		Style oldStyle = paint.getStyle();
+		paint.setStrokeWidth(width);
+		paint.setStrokeCap(cap);
+		paint.setStyle(Style.STROKE);
+		canvas.drawPoints(points, 0, count*2, paint);
+		paint.setStrokeWidth(oldWidth);
+		paint.setStrokeCap(oldCap);
+		paint.setStyle(oldStyle);
+	}
+
 	public boolean getDrawBackground() {
 		return drawBackground;
 	}
@@ -265,6 +292,23 @@ public class LineGraphView extends GraphView {
 		this.drawBackground = drawBackground;
 	}
 
+	/**
+	 * @param color color of the background under the graph line
+	 */
+	public void setBackgroundFillColor(int color) {
+		backgroundColor = color;
+		backgroundGradientColors = null;
+	}
+
+	/**
+	 * fills the background under the graph line with a vertical gradient
+	 * @param topColor color at the top edge of the graph
+	 * @param bottomColor color at the bottom edge of the graph
+	 */
+	public void setBackgroundFillGradient(int topColor, int bottomColor) {
+		backgroundGradientColors = new int[] {topColor, bottomColor};
+	}
+
 	public void setDrawSeriesPoints(boolean drawPoints) {
 		this.drawBullets = drawPoints;
 		if (drawPoints && seriesDrawer == null) {
@@ -272,6 +316,53 @@ public class LineGraphView extends GraphView {
 		}
 	}
 
+	/**
+	 * markers of a series are only drawn if there are at most this many visible points per pixel
+	 * of graph width. Denser markers would overlap to a thick line anyway.
+	 * @param maxSeriesPointDensity points per pixel, e.g. 0.5. Default is Float.MAX_VALUE, the markers are always drawn
+	 */
+	public void setMaxSeriesPointDensity(float maxSeriesPointDensity) {
+		this.maxSeriesPointDensity = maxSeriesPointDensity;
+	}
+
+	public float getMaxSeriesPointDensity() {
+		return maxSeriesPointDensity;
+	}
+
+	/**
+	 * markers of the built-in series drawers are drawn by the headless graph, a graph with a custom
+	 * series drawer only draws on a Canvas
+	 */
+	@Override
+	protected HeadlessGraph createHeadlessGraph() {
+		if (hasCustomDrawing(LineGraphView.class)) {
+			return null;
+		}
+		HeadlessLineGraph graph = new HeadlessLineGraph();
+		SeriesDrawer seriesDrawer = this.seriesDrawer;
+		if (drawBullets && seriesDrawer != null) {
+			if (seriesDrawer.getClass() == CircleSeriesDrawer.class) {
+				graph.setSeriesPoints(HeadlessLineGraph.POINTS_CIRCLE, ((CircleSeriesDrawer) seriesDrawer).radius);
+			} else if (seriesDrawer.getClass() == SquareSeriesDrawer.class) {
+				graph.setSeriesPoints(HeadlessLineGraph.POINTS_SQUARE, ((SquareSeriesDrawer) seriesDrawer).size/2*2);
+			} else if (seriesDrawer.getClass() == TriangleSeriesDrawer.class) {
+				graph.setSeriesPoints(HeadlessLineGraph.POINTS_TRIANGLE, ((TriangleSeriesDrawer) seriesDrawer).size);
+			} else {
+				return null;
+			}
+		}
+		copyTo(graph);
+		graph.setDrawBackground(drawBackground);
+		if (backgroundGradientColors != null) {
+			graph.setBackgroundFillGradient(backgroundGradientColors[0], backgroundGradientColors[1]);
+		} else {
+			graph.setBackgroundFillColor(backgroundColor);
+		}
+		graph.setDrawSmoothLine(drawSmoothLine);
+		graph.setMaxSeriesPointDensity(maxSeriesPointDensity);
+		return graph;
+	}
+
 	public SeriesDrawer getSeriesDrawer() {
 		return seriesDrawer;
 	}
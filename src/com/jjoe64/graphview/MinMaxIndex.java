@@ -0,0 +1,183 @@
+package com.jjoe64.graphview;
+
+/**
+ * range minimum/maximum index over a column of values.
+ * the values are grouped into blocks of {@link #BLOCK_SIZE}, a segment tree over the
+ * block summaries answers range queries in O(BLOCK_SIZE + log n).
+ * a changed value updates its block and the path to the root.
+ *
+ * the index works on the physical positions of the column, the caller has to
+ * map logical ranges (ring buffer wrap-around).
+ * a query reads only the values of its range and the tree nodes of blocks that are completely
+ * inside of it, so a single writer can update other positions while readers query.
+ */
+class MinMaxIndex {
+	static final int BLOCK_SIZE = 32;
+
+	private double[] values;
+	private int used;
+
+	/**
+	 * number of leaves of the tree (power of two), leaf i summarizes block i
+	 */
+	private int leaves;
+	private double[] treeMin;
+	private double[] treeMax;
+
+	/**
+	 * recreates the index in O(n)
+	 * @param values the column
+	 * @param used number of valid values, starting at index 0
+	 */
+	void rebuild(double[] values, int used) {
+		this.values = values;
+		this.used = used;
+
+		int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int leaves = 1;
+		while (leaves < blocks) {
+			leaves <<= 1;
+		}
+		if (treeMin == null || this.leaves != leaves) {
+			this.leaves = leaves;
+			treeMin = new double[2*leaves];
+			treeMax = new double[2*leaves];
+		}
+		for (int b=0; b<leaves; b++) {
+			summarizeBlock(b);
+		}
+		for (int node=leaves-1; node>0; node--) {
+			treeMin[node] = min(treeMin[2*node], treeMin[2*node+1]);
+			treeMax[node] = max(treeMax[2*node], treeMax[2*node+1]);
+		}
+	}
+
+	/**
+	 * the value at the index has changed
+	 * @param index physical index in the column
+	 * @param used number of valid values, starting at index 0
+	 */
+	void update(int index, int used) {
+		this.used = used;
+		int b = index / BLOCK_SIZE;
+		summarizeBlock(b);
+		int node = (b + leaves) >>> 1;
+		while (node > 0) {
+			treeMin[node] = min(treeMin[2*node], treeMin[2*node+1]);
+			treeMax[node] = max(treeMax[2*node], treeMax[2*node+1]);
+			node >>>= 1;
+		}
+	}
+
+	/**
+	 * the values of a range have changed.
+	 * every block and tree node is recomputed only once.
+	 * @param from physical index, inclusive
+	 * @param to physical index, exclusive
+	 * @param used number of valid values, starting at index 0
+	 */
+	void update(int from, int to, int used) {
+		if (from >= to) {
+			return;
+		}
+		this.used = used;
+		int first = from / BLOCK_SIZE;
+		int last = (to-1) / BLOCK_SIZE;
+		for (int b=first; b<=last; b++) {
+			summarizeBlock(b);
+		}
+		int l = (first + leaves) >>> 1;
+		int r = (last + leaves) >>> 1;
+		while (l > 0) {
+			for (int node=l; node<=r; node++) {
+				treeMin[node] = min(treeMin[2*node], treeMin[2*node+1]);
+				treeMax[node] = max(treeMax[2*node], treeMax[2*node+1]);
+			}
+			l >>>= 1;
+			r >>>= 1;
+		}
+	}
+
+	private void summarizeBlock(int b) {
+		double lowest = Double.NaN;
+		double highest = Double.NaN;
+		int end = Math.min((b+1)*BLOCK_SIZE, used);
+		for (int i=b*BLOCK_SIZE; i<end; i++) {
+			lowest = min(lowest, values[i]);
+			highest = max(highest, values[i]);
+		}
+		treeMin[leaves + b] = lowest;
+		treeMax[leaves + b] = highest;
+	}
+
+	/**
+	 * @param from physical index, inclusive
+	 * @param to physical index, exclusive
+	 * @return the smallest value in the range or NaN if there is none
+	 */
+	double getMin(int from, int to) {
+		return query(from, to, false);
+	}
+
+	/**
+	 * @param from physical index, inclusive
+	 * @param to physical index, exclusive
+	 * @return the largest value in the range or NaN if there is none
+	 */
+	double getMax(int from, int to) {
+		return query(from, to, true);
+	}
+
+	private double query(int from, int to, boolean largest) {
+		double result = Double.NaN;
+		int firstBlock = (from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int lastBlock = to / BLOCK_SIZE;
+		if (firstBlock >= lastBlock) {
+			// no complete block, scan
+			for (int i=from; i<to; i++) {
+				result = largest ? max(result, values[i]) : min(result, values[i]);
+			}
+			return result;
+		}
+
+		// partial blocks at the edges
+		for (int i=from; i<firstBlock*BLOCK_SIZE; i++) {
+			result = largest ? max(result, values[i]) : min(result, values[i]);
+		}
+		for (int i=lastBlock*BLOCK_SIZE; i<to; i++) {
+			result = largest ? max(result, values[i]) : min(result, values[i]);
+		}
+
+		// complete blocks via the tree
+		double[] tree = largest ? treeMax : treeMin;
+		int l = firstBlock + leaves;
+		int r = lastBlock + leaves;
+		while (l < r) {
+			if ((l & 1) == 1) {
+				result = largest ? max(result, tree[l]) : min(result, tree[l]);
+				l++;
+			}
+			if ((r & 1) == 1) {
+				r--;
+				result = largest ? max(result, tree[r]) : min(result, tree[r]);
+			}
+			l >>>= 1;
+			r >>>= 1;
+		}
+		return result;
+	}
+
+	/**
+	 * min that ignores NaN (NaN = no value)
+	 */
+	static double min(double a, double b) {
+		return a < b || b != b ? a : b;
+	}
+
+	/**
+	 * max that ignores NaN (NaN = no value)
+	 */
+	static double max(double a, double b) {
+		return a > b || b != b ? a : b;
+	}
+}
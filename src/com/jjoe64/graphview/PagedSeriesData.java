@@ -0,0 +1,240 @@
+package com.jjoe64.graphview;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.util.Log;
+
+/**
+ * loads the data of a paged series in chunks of a fixed x width.
+ * chunk k holds the data with k*chunkWidth <= x < (k+1)*chunkWidth. Loaded chunks are kept in an
+ * LRU cache, the series gets the cached chunks around the viewport as its data. Chunks that are
+ * still loading are missing, they are added when they arrive.
+ * lock order: this, then the series.
+ */
+class PagedSeriesData {
+	/**
+	 * a loaded chunk, immutable
+	 */
+	private static final class Chunk {
+		final double[] valuesX;
+		final double[] valuesY;
+
+		Chunk(double[] valuesX, double[] valuesY) {
+			this.valuesX = valuesX;
+			this.valuesY = valuesY;
+		}
+	}
+
+	private static ExecutorService defaultExecutor;
+
+	private final GraphViewSeries series;
+	private final SeriesDataProvider provider;
+	private final Executor executor;
+	private final double chunkWidth;
+	private final Map<Long, Chunk> cache;
+	private final Set<Long> loading = new HashSet<Long>();
+
+	/**
+	 * chunks that belong to the data of the series: the viewport and one chunk on each side
+	 */
+	private long windowFirst = 1;
+	private long windowLast = 0;
+
+	/**
+	 * the chunks of the data that was given to the series last
+	 */
+	private final List<Chunk> published = new ArrayList<Chunk>();
+	private final List<Chunk> window = new ArrayList<Chunk>();
+
+	/**
+	 * @param executor null for a shared pool of two background threads
+	 */
+	PagedSeriesData(GraphViewSeries series, SeriesDataProvider provider, double chunkWidth, final int maxCachedChunks, Executor executor) {
+		if (!(chunkWidth > 0)) {
+			throw new IllegalArgumentException("chunkWidth must be > 0");
+		}
+		if (maxCachedChunks < 1) {
+			throw new IllegalArgumentException("maxCachedChunks must be > 0");
+		}
+		this.series = series;
+		this.provider = provider;
+		this.chunkWidth = chunkWidth;
+		this.executor = executor != null ? executor : getDefaultExecutor();
+		this.cache = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				return size() > maxCachedChunks;
+			}
+		};
+	}
+
+	private static synchronized ExecutorService getDefaultExecutor() {
+		if (defaultExecutor == null) {
+			defaultExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "GraphView loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return defaultExecutor;
+	}
+
+	SeriesDataProvider getProvider() {
+		return provider;
+	}
+
+	/**
+	 * the viewport has changed: the data of the series becomes the cached chunks around it,
+	 * missing chunks and the chunks of the next viewport in scroll direction are loaded.
+	 * @param viewportStart
+	 * @param viewportSize 0 for all data
+	 * @param direction > 0 if the viewport moved to larger x, < 0 to smaller x, 0 if unknown
+	 */
+	synchronized void request(double viewportStart, double viewportSize, int direction) {
+		double minX = provider.getMinX();
+		double maxX = provider.getMaxX();
+		if (viewportSize == 0) {
+			viewportStart = minX;
+			viewportSize = maxX - minX;
+		}
+		long firstData = chunk(minX);
+		long lastData = chunk(maxX);
+		long first = chunk(viewportStart);
+		long last = chunk(viewportStart + viewportSize);
+
+		windowFirst = Math.max(firstData, first - 1);
+		windowLast = Math.min(lastData, last + 1);
+		for (long k=windowFirst; k<=windowLast; k++) {
+			load(k);
+		}
+
+		// prefetch the next viewport
+		long prefetchFirst = windowLast + 1;
+		long prefetchLast = windowLast;
+		if (direction > 0) {
+			prefetchLast = Math.min(lastData, chunk(viewportStart + 2*viewportSize) + 1);
+		} else if (direction < 0) {
+			prefetchFirst = Math.max(firstData, chunk(viewportStart - viewportSize) - 1);
+			prefetchLast = windowFirst - 1;
+		}
+		for (long k=prefetchFirst; k<=prefetchLast; k++) {
+			load(k);
+		}
+
+		publish();
+	}
+
+	private long chunk(double x) {
+		return (long) Math.floor(x / chunkWidth);
+	}
+
+	/**
+	 * starts loading a chunk in background, if it is neither cached nor loading
+	 */
+	private void load(final long k) {
+		final Long key = Long.valueOf(k);
+		if (cache.containsKey(key) || !loading.add(key)) {
+			return;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Chunk chunk = null;
+				try {
+					chunk = copy(provider.load(k * chunkWidth, (k+1) * chunkWidth), k * chunkWidth, (k+1) * chunkWidth);
+				} catch (RuntimeException e) {
+					// loaded again on the next request
+					Log.w("com.jjoe64.graphview", "Could not load data from " + (k * chunkWidth) + " to " + ((k+1) * chunkWidth), e);
+				}
+				loaded(key, chunk);
+			}
+		});
+	}
+
+	/**
+	 * copies the points of the range, the data set of the provider may be a view of its storage
+	 */
+	private static Chunk copy(GraphViewDataSet data, double fromX, double toX) {
+		int size = data.size();
+		int count = 0;
+		for (int i=0; i<size; i++) {
+			double x = data.getX(i);
+			if (x >= fromX && x < toX) {
+				count++;
+			}
+		}
+		double[] valuesX = new double[count];
+		double[] valuesY = new double[count];
+		for (int i=0, j=0; i<size; i++) {
+			double x = data.getX(i);
+			if (x >= fromX && x < toX) {
+				valuesX[j] = x;
+				valuesY[j] = data.getY(i);
+				j++;
+			}
+		}
+		return new Chunk(valuesX, valuesY);
+	}
+
+	/**
+	 * runs on the executor
+	 * @param chunk null if loading failed
+	 */
+	private synchronized void loaded(Long key, Chunk chunk) {
+		loading.remove(key);
+		if (chunk == null) {
+			return;
+		}
+		cache.put(key, chunk);
+		long k = key.longValue();
+		if (k >= windowFirst && k <= windowLast) {
+			publish();
+		}
+	}
+
+	/**
+	 * gives the cached chunks of the window to the series, if they have changed
+	 */
+	private void publish() {
+		window.clear();
+		int count = 0;
+		for (long k=windowFirst; k<=windowLast; k++) {
+			Chunk chunk = cache.get(Long.valueOf(k));
+			if (chunk != null) {
+				window.add(chunk);
+				count += chunk.valuesX.length;
+			}
+		}
+		if (window.equals(published)) {
+			// Chunk has no equals, so this compares the identities
+			return;
+		}
+		published.clear();
+		published.addAll(window);
+
+		double[] valuesX = new double[count];
+		double[] valuesY = new double[count];
+		int offset = 0;
+		for (int i=0; i<window.size(); i++) {
+			Chunk chunk = window.get(i);
+			System.arraycopy(chunk.valuesX, 0, valuesX, offset, chunk.valuesX.length);
+			System.arraycopy(chunk.valuesY, 0, valuesY, offset, chunk.valuesY.length);
+			offset += chunk.valuesX.length;
+		}
+		series.setPagedValues(valuesX, valuesY);
+	}
+}
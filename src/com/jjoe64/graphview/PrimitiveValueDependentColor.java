@@ -0,0 +1,9 @@
+package com.jjoe64.graphview;
+
+/**
+ * like {@link ValueDependentColor}, but gets the values as primitives,
+ * so no object is created per data point.
+ */
+public interface PrimitiveValueDependentColor {
+	public int get(double valueX, double valueY);
+}
@@ -0,0 +1,429 @@
+package com.jjoe64.graphview;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+
+/**
+ * the data of a series: the writer side, that appends data and publishes a {@link SeriesSnapshot}
+ * after every change. It doesn't know about views, so it can be used (and measured) on a plain JVM.
+ * the writer methods are synchronized, readers use {@link #snapshot()} without locking.
+ */
+final class SeriesData {
+	/**
+	 * the data columns of the writer. In ring buffer mode the data starts at index {@link #start}
+	 * and wraps around at the end of the arrays.
+	 * all writer state is guarded by the lock of this object, readers use {@link #snapshot} instead.
+	 */
+	private double[] valuesX;
+	private double[] valuesY;
+	private int start;
+	private int size;
+
+	/**
+	 * number of slots of the columns that were written, starting at index 0
+	 */
+	private int used;
+
+	/**
+	 * range min/max of the y values, kept up to date on every change
+	 */
+	private MinMaxIndex minMaxY;
+
+	/**
+	 * optional min/max pyramid for zooming out, null if disabled
+	 */
+	private LevelOfDetail levelOfDetail;
+
+	/**
+	 * the latest published state, read without locking
+	 */
+	private volatile SeriesSnapshot snapshot;
+
+	/**
+	 * the data file of a file-backed series, null otherwise. The columns are the tail then: the points
+	 * that were appended since the file was mapped, size is their number. There are no indexes.
+	 */
+	private SeriesFile file;
+	private DoubleBuffer[] segments;
+	private double[] pointX;
+	private double[] pointY;
+
+	/**
+	 * the blocks of a compressed series, null otherwise. The columns are empty then.
+	 */
+	private CompressedColumns compressed;
+
+	/**
+	 * points of a file-backed series that are kept in memory until the file is mapped again
+	 */
+	private static final int TAIL_CAPACITY = 4096;
+
+	/**
+	 * 0 = unbounded, otherwise the capacity of the ring buffer
+	 */
+	private final int maxDataPoints;
+
+	/**
+	 * number of points that were written into the columns of a ring buffer, null for other series
+	 */
+	private WriteCount writeCount;
+
+	/**
+	 * counts the points written into the columns of a ring buffer since they were created.
+	 * the writer raises the count before it writes the slots, so a snapshot can find out
+	 * whether its data was overwritten, see {@link SeriesSnapshot#isOverwritten()}.
+	 */
+	static final class WriteCount {
+		volatile long count;
+	}
+
+	/**
+	 * @param valuesX x values, have to be sorted. The array is used directly, not copied (unless the series is a ring buffer)
+	 * @param valuesY y values, same length as valuesX
+	 * @param maxDataPoints 0 for an unbounded series, otherwise the capacity of the ring buffer.
+	 * the storage has room for 2*maxDataPoints, the unused half keeps the dropped data alive
+	 * for readers that still use an older {@link SeriesSnapshot}.
+	 */
+	SeriesData(double[] valuesX, double[] valuesY, int maxDataPoints) {
+		if (maxDataPoints < 0 || maxDataPoints > Integer.MAX_VALUE/2) {
+			throw new IllegalArgumentException("maxDataPoints must be >= 0 and <= Integer.MAX_VALUE/2");
+		}
+		this.maxDataPoints = maxDataPoints;
+		setValues(valuesX, valuesY);
+	}
+
+	/**
+	 * a file-backed series, see {@link SeriesFile}
+	 * @param file created if it doesn't exist
+	 * @throws IOException if the file can't be opened or mapped
+	 */
+	SeriesData(File file) throws IOException {
+		this.maxDataPoints = 0;
+		this.file = new SeriesFile(file);
+		try {
+			segments = this.file.map();
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+		valuesX = new double[TAIL_CAPACITY];
+		valuesY = new double[TAIL_CAPACITY];
+		pointX = new double[1];
+		pointY = new double[1];
+		publish();
+	}
+
+	/**
+	 * clears the current data and set the new
+	 */
+	synchronized void setValues(double[] valuesX, double[] valuesY) {
+		if (file != null) {
+			throw new IllegalStateException("the data of a file-backed series can only be appended");
+		}
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		if (compressed != null) {
+			compressed = new CompressedColumns();
+			for (int i=0; i<valuesX.length; i++) {
+				compressed.append(valuesX[i], valuesY[i]);
+			}
+			publish();
+			return;
+		}
+		if (maxDataPoints > 0) {
+			// ring buffer, keep only the latest data
+			int count = Math.min(valuesX.length, maxDataPoints);
+			this.valuesX = new double[2*maxDataPoints];
+			this.valuesY = new double[2*maxDataPoints];
+			System.arraycopy(valuesX, valuesX.length - count, this.valuesX, 0, count);
+			System.arraycopy(valuesY, valuesY.length - count, this.valuesY, 0, count);
+			size = count;
+			// new columns, older snapshots keep the old ones and their count
+			writeCount = new WriteCount();
+			writeCount.count = count;
+		} else {
+			this.valuesX = valuesX;
+			this.valuesY = valuesY;
+			size = valuesX.length;
+		}
+		start = 0;
+		used = size;
+		rebuildIndexes();
+		publish();
+	}
+
+	/**
+	 * creates new indexes for the current columns.
+	 * the old ones are not modified, they may still be used by snapshots.
+	 */
+	private void rebuildIndexes() {
+		minMaxY = new MinMaxIndex();
+		minMaxY.rebuild(valuesY, used);
+		if (levelOfDetail != null) {
+			levelOfDetail = new LevelOfDetail();
+			levelOfDetail.rebuild(valuesX, valuesY, used);
+		}
+	}
+
+	/**
+	 * makes the current state visible to readers
+	 */
+	private void publish() {
+		if (compressed != null) {
+			snapshot = new SeriesSnapshot(compressed.blocks());
+		} else if (file != null) {
+			int mappedSize = file.getMappedSize();
+			snapshot = new SeriesSnapshot(segments, mappedSize, valuesX, valuesY, 0, mappedSize + size, null, null);
+		} else {
+			snapshot = new SeriesSnapshot(valuesX, valuesY, start, size, minMaxY, levelOfDetail, writeCount);
+		}
+	}
+
+	/**
+	 * appends one data point and publishes a new snapshot
+	 * @param valueX must be >= the last x value
+	 * @param valueY
+	 */
+	synchronized void append(double valueX, double valueY) {
+		if (file != null) {
+			// unsorted data would stay in the file
+			SeriesSnapshot current = snapshot;
+			if (current.size() > 0 && valueX < current.getX(current.size()-1)) {
+				throw new IllegalArgumentException("valueX must be >= the last x value of a file-backed series");
+			}
+			pointX[0] = valueX;
+			pointY[0] = valueY;
+			appendToFile(pointX, pointY, 0, 1);
+		} else if (compressed != null) {
+			compressed.append(valueX, valueY);
+		} else {
+			if (size == valuesX.length) {
+				grow(size+1);
+			}
+			int idx = physicalIndex(size);
+			if (writeCount != null) {
+				writeCount.count++;
+			}
+			valuesX[idx] = valueX;
+			valuesY[idx] = valueY;
+			if (idx >= used) {
+				used = idx+1;
+			}
+			if (maxDataPoints > 0 && size == maxDataPoints) {
+				// ring buffer is full, drop the oldest data
+				start = start+1 == valuesX.length ? 0 : start+1;
+			} else {
+				size++;
+			}
+			minMaxY.update(idx, used);
+			if (levelOfDetail != null) {
+				levelOfDetail.update(idx, used);
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * appends several data points and publishes one new snapshot.
+	 * the storage grows at most once and the indexes are updated once for the whole range.
+	 * @param valuesX have to be sorted and >= the last x value
+	 * @param valuesY
+	 * @param offset index of the first new data in the arrays
+	 * @param length number of new data, nothing is published if it is 0
+	 */
+	synchronized void append(double[] valuesX, double[] valuesY, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > valuesX.length || offset + length > valuesY.length) {
+			throw new IndexOutOfBoundsException("Invalid range " + offset + " to " + (offset + length));
+		}
+		if (length == 0) {
+			return;
+		}
+		SeriesSnapshot current = snapshot;
+		double lastX = current.size() > 0 ? current.getX(current.size()-1) : Double.NEGATIVE_INFINITY;
+		for (int i=offset; i<offset+length; i++) {
+			if (valuesX[i] < lastX) {
+				throw new IllegalArgumentException("valuesX must be sorted and >= the last x value, at index " + i);
+			}
+			lastX = valuesX[i];
+		}
+
+		if (file != null) {
+			appendToFile(valuesX, valuesY, offset, length);
+		} else if (compressed != null) {
+			for (int i=offset; i<offset+length; i++) {
+				compressed.append(valuesX[i], valuesY[i]);
+			}
+		} else {
+			if (maxDataPoints > 0 && length > maxDataPoints) {
+				// only the latest data fits into the ring buffer
+				offset += length - maxDataPoints;
+				length = maxDataPoints;
+			}
+			if (size + length > this.valuesX.length) {
+				grow(size + length);
+			}
+
+			if (writeCount != null) {
+				writeCount.count += length;
+			}
+			// at most two chunks, if the range wraps around the end of the ring buffer
+			int from = physicalIndex(size);
+			int first = Math.min(length, this.valuesX.length - from);
+			writeChunk(valuesX, valuesY, offset, from, first);
+			if (first < length) {
+				writeChunk(valuesX, valuesY, offset + first, 0, length - first);
+			}
+
+			if (maxDataPoints > 0 && size + length > maxDataPoints) {
+				// drop the oldest data
+				int dropped = size + length - maxDataPoints;
+				start = (start + dropped) % this.valuesX.length;
+				size = maxDataPoints;
+			} else {
+				size += length;
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * writes data to the file of a file-backed series and keeps it in the tail.
+	 * if the tail is full, the file is mapped again and the tail starts empty.
+	 */
+	private void appendToFile(double[] valuesX, double[] valuesY, int offset, int length) {
+		try {
+			file.append(valuesX, valuesY, offset, length);
+			if (size + length <= this.valuesX.length) {
+				System.arraycopy(valuesX, offset, this.valuesX, size, length);
+				System.arraycopy(valuesY, offset, this.valuesY, size, length);
+				size += length;
+			} else {
+				segments = file.map();
+				// the old tail may still be used by snapshots
+				this.valuesX = new double[TAIL_CAPACITY];
+				this.valuesY = new double[TAIL_CAPACITY];
+				size = 0;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("could not append to " + file.getFile(), e);
+		}
+	}
+
+	/**
+	 * closes the file of a file-backed series, does nothing for other series
+	 * @throws IOException
+	 */
+	synchronized void close() throws IOException {
+		if (file != null) {
+			file.close();
+		}
+	}
+
+	/**
+	 * copies data to a physical range of the columns and updates the indexes for it
+	 */
+	private void writeChunk(double[] valuesX, double[] valuesY, int offset, int from, int length) {
+		System.arraycopy(valuesX, offset, this.valuesX, from, length);
+		System.arraycopy(valuesY, offset, this.valuesY, from, length);
+		used = Math.max(used, from + length);
+		minMaxY.update(from, from + length, used);
+		if (levelOfDetail != null) {
+			levelOfDetail.update(from, from + length, used);
+		}
+	}
+
+	/**
+	 * grows the columns of an unbounded series, doubling keeps appending amortized O(1).
+	 * the old columns are not modified, they may still be used by snapshots.
+	 * @param minCapacity
+	 */
+	private void grow(int minCapacity) {
+		int capacity = Math.max(Math.max(16, size*2), minCapacity);
+		double[] newValuesX = new double[capacity];
+		double[] newValuesY = new double[capacity];
+		System.arraycopy(valuesX, 0, newValuesX, 0, size);
+		System.arraycopy(valuesY, 0, newValuesY, 0, size);
+		valuesX = newValuesX;
+		valuesY = newValuesY;
+		rebuildIndexes();
+	}
+
+	/**
+	 * maps a logical index to the index in the data columns of the writer
+	 */
+	private int physicalIndex(int index) {
+		int idx = start + index;
+		return idx >= valuesX.length ? idx - valuesX.length : idx;
+	}
+
+	/**
+	 * @return the latest published state, without locking
+	 */
+	SeriesSnapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the capacity of the ring buffer or 0 if the series is unbounded
+	 */
+	int getMaxDataPoints() {
+		return maxDataPoints;
+	}
+
+	/**
+	 * @see GraphViewSeries#setLevelOfDetail(boolean)
+	 */
+	synchronized void setLevelOfDetail(boolean levelOfDetail) {
+		if (levelOfDetail && file != null) {
+			throw new IllegalStateException("level of detail is not available for a file-backed series");
+		}
+		if (compressed != null) {
+			return;
+		}
+		if (levelOfDetail && this.levelOfDetail == null) {
+			this.levelOfDetail = new LevelOfDetail();
+			this.levelOfDetail.rebuild(valuesX, valuesY, used);
+		} else if (!levelOfDetail) {
+			this.levelOfDetail = null;
+		}
+		publish();
+	}
+
+	/**
+	 * @see GraphViewSeries#setCompressed(boolean)
+	 */
+	synchronized void setCompressed(boolean compressed) {
+		if (compressed == (this.compressed != null)) {
+			return;
+		}
+		if (compressed) {
+			if (maxDataPoints > 0 || file != null) {
+				throw new IllegalStateException("only unbounded series in memory can be compressed");
+			}
+			CompressedColumns columns = new CompressedColumns();
+			for (int i=0; i<size; i++) {
+				columns.append(valuesX[i], valuesY[i]);
+			}
+			this.compressed = columns;
+			valuesX = new double[0];
+			valuesY = new double[0];
+			size = 0;
+			used = 0;
+			levelOfDetail = null;
+			rebuildIndexes();
+			publish();
+		} else {
+			CompressedColumns.Blocks blocks = this.compressed.blocks();
+			int count = blocks.size();
+			double[] newValuesX = new double[count];
+			double[] newValuesY = new double[count];
+			for (int block=0, offset=0; offset<count; block++) {
+				offset += blocks.decode(block, newValuesX, newValuesY, offset);
+			}
+			this.compressed = null;
+			setValues(newValuesX, newValuesY);
+		}
+	}
+}
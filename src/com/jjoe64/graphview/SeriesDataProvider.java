@@ -0,0 +1,27 @@
+package com.jjoe64.graphview;
+
+/**
+ * source of the data of a paged series, e.g. a database or a server.
+ * the series asks for chunks of a fixed x width when the viewport moves, see
+ * {@link GraphViewSeries#GraphViewSeries(SeriesDataProvider, double, int, String, GraphViewSeriesStyle)}.
+ */
+public interface SeriesDataProvider {
+	/**
+	 * @return smallest x value of all data, has to be fast, it is used to limit scrolling
+	 */
+	public double getMinX();
+
+	/**
+	 * @return largest x value of all data, has to be fast, it is used to limit scrolling
+	 */
+	public double getMaxX();
+
+	/**
+	 * loads the data in a range of x values. Called on a background thread, it may block.
+	 * points outside of the range are ignored.
+	 * @param fromX inclusive
+	 * @param toX exclusive
+	 * @return the data points, sorted by x
+	 */
+	public GraphViewDataSet load(double fromX, double toX);
+}
@@ -0,0 +1,142 @@
+package com.jjoe64.graphview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * a file of data points, each one a little-endian double x followed by a little-endian double y.
+ * the file is memory-mapped read only in segments of {@link #SEGMENT_SIZE} points, so the data is
+ * paged in by the OS when it is read and doesn't use heap. The segments are small, the last one is
+ * mapped again after appends and the old mappings are only released by the GC, which must not
+ * exhaust the address space of 32 bit devices.
+ * appends are written to the file with the channel, {@link #map()} makes them part of the mapping.
+ * not thread-safe, used by the writer of the series under its lock. The mapped segments are
+ * immutable and can be read by any thread.
+ */
+final class SeriesFile {
+	static final int SEGMENT_BITS = 18;
+	/**
+	 * points per mapped segment, 4 MB
+	 */
+	static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private static final int POINT_BYTES = 16;
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(256 * POINT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * number of complete points in the file, incomplete bytes at the end are overwritten by the next append
+	 */
+	private int size;
+	private DoubleBuffer[] segments = new DoubleBuffer[0];
+	private int mappedSize;
+
+	/**
+	 * opens or creates the file
+	 * @param file
+	 * @throws IOException
+	 */
+	SeriesFile(File file) throws IOException {
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = randomAccessFile.getChannel();
+		long points = channel.size() / POINT_BYTES;
+		if (points > Integer.MAX_VALUE) {
+			close();
+			throw new IOException(file + " has more than " + Integer.MAX_VALUE + " data points");
+		}
+		size = (int) points;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return number of points in the file
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of points in the mapped segments
+	 */
+	int getMappedSize() {
+		return mappedSize;
+	}
+
+	/**
+	 * maps all points of the file. Full segments stay mapped, only the last one is mapped again.
+	 * @return the segments, a new array if something changed. Old arrays are not modified, they
+	 * may still be used by snapshots.
+	 * @throws IOException
+	 */
+	DoubleBuffer[] map() throws IOException {
+		if (mappedSize == size) {
+			return segments;
+		}
+		int count = (size + SEGMENT_MASK) >>> SEGMENT_BITS;
+		DoubleBuffer[] newSegments = new DoubleBuffer[count];
+		int full = mappedSize >>> SEGMENT_BITS;
+		System.arraycopy(segments, 0, newSegments, 0, full);
+		for (int i=full; i<count; i++) {
+			long position = (long) i * SEGMENT_SIZE * POINT_BYTES;
+			long points = Math.min(SEGMENT_SIZE, size - (long) i * SEGMENT_SIZE);
+			newSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, points * POINT_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+		segments = newSegments;
+		mappedSize = size;
+		return segments;
+	}
+
+	/**
+	 * writes points to the end of the file
+	 * @throws IOException
+	 */
+	void append(double[] valuesX, double[] valuesY, int offset, int length) throws IOException {
+		if ((long) size + length > Integer.MAX_VALUE) {
+			throw new IOException(file + " would have more than " + Integer.MAX_VALUE + " data points");
+		}
+		long position = (long) size * POINT_BYTES;
+		int end = offset + length;
+		while (offset < end) {
+			writeBuffer.clear();
+			while (offset < end && writeBuffer.remaining() >= POINT_BYTES) {
+				writeBuffer.putDouble(valuesX[offset]);
+				writeBuffer.putDouble(valuesY[offset]);
+				offset++;
+			}
+			writeBuffer.flip();
+			while (writeBuffer.hasRemaining()) {
+				position += channel.write(writeBuffer, position);
+			}
+		}
+		size += length;
+	}
+
+	/**
+	 * closes the file, the mapped segments stay readable
+	 */
+	void close() throws IOException {
+		randomAccessFile.close();
+	}
+
+	static double getX(DoubleBuffer[] segments, int index) {
+		return segments[index >>> SEGMENT_BITS].get((index & SEGMENT_MASK) << 1);
+	}
+
+	static double getY(DoubleBuffer[] segments, int index) {
+		return segments[index >>> SEGMENT_BITS].get(((index & SEGMENT_MASK) << 1) + 1);
+	}
+}
@@ -0,0 +1,412 @@
+package com.jjoe64.graphview;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * immutable state of the data of a series at one moment.
+ * a snapshot is published after every change of the series, readers (e.g. the renderer, once per frame)
+ * take the current one and see consistent data without locking, while producers keep appending.
+ *
+ * the data of a snapshot is never changed by appends, with one exception: a full ring buffer
+ * (see {@link GraphViewSeries#GraphViewSeries(String, GraphViewSeriesStyle, int)}) reuses the slots
+ * of the oldest data after maxDataPoints further appends, so a snapshot of a ring buffer should not
+ * be kept longer than that (one frame is fine). {@link #isOverwritten()} tells whether that happened.
+ *
+ * a file-backed series (see {@link GraphViewSeries#GraphViewSeries(File, String, GraphViewSeriesStyle)})
+ * reads its first mappedSize points from the mapped file and the rest from the columns.
+ *
+ * a compressed series (see {@link GraphViewSeries#setCompressed(boolean)}) reads single values from
+ * a decoded block per thread, that is fast for sequential reads but not for random access.
+ */
+public final class SeriesSnapshot implements GraphViewDataSet {
+	private final double[] valuesX;
+	private final double[] valuesY;
+	private final int start;
+	private final int size;
+	private final MinMaxIndex minMaxY;
+	private final LevelOfDetail levelOfDetail;
+	private final DoubleBuffer[] segments;
+	private final int mappedSize;
+	private final CompressedColumns.Blocks blocks;
+
+	/**
+	 * write count of the ring buffer and its value when the snapshot was published, null for other series
+	 */
+	private final SeriesData.WriteCount writeCount;
+	private final long written;
+
+	/**
+	 * written by {@link #isOverwritten()} only for the barrier of a volatile write
+	 */
+	private volatile boolean fence;
+
+	/**
+	 * file-backed snapshots have no index, the last min/max scan: from, to, min, max
+	 */
+	private volatile double[] scannedY;
+
+	SeriesSnapshot(double[] valuesX, double[] valuesY, int start, int size, MinMaxIndex minMaxY, LevelOfDetail levelOfDetail) {
+		this(valuesX, valuesY, start, size, minMaxY, levelOfDetail, null);
+	}
+
+	/**
+	 * @param writeCount of a ring buffer, null for other series
+	 */
+	SeriesSnapshot(double[] valuesX, double[] valuesY, int start, int size, MinMaxIndex minMaxY, LevelOfDetail levelOfDetail, SeriesData.WriteCount writeCount) {
+		this(null, 0, valuesX, valuesY, start, size, minMaxY, levelOfDetail, null, writeCount);
+	}
+
+	SeriesSnapshot(DoubleBuffer[] segments, int mappedSize, double[] valuesX, double[] valuesY, int start, int size, MinMaxIndex minMaxY, LevelOfDetail levelOfDetail) {
+		this(segments, mappedSize, valuesX, valuesY, start, size, minMaxY, levelOfDetail, null, null);
+	}
+
+	SeriesSnapshot(CompressedColumns.Blocks blocks) {
+		this(null, 0, null, null, 0, blocks.size(), null, null, blocks, null);
+	}
+
+	private SeriesSnapshot(DoubleBuffer[] segments, int mappedSize, double[] valuesX, double[] valuesY, int start, int size, MinMaxIndex minMaxY, LevelOfDetail levelOfDetail, CompressedColumns.Blocks blocks, SeriesData.WriteCount writeCount) {
+		this.writeCount = writeCount;
+		this.written = writeCount != null ? writeCount.count : 0;
+		this.blocks = blocks;
+		this.segments = segments;
+		this.mappedSize = mappedSize;
+		this.valuesX = valuesX;
+		this.valuesY = valuesY;
+		this.start = start;
+		this.size = size;
+		this.minMaxY = minMaxY;
+		this.levelOfDetail = levelOfDetail;
+	}
+
+	/**
+	 * maps a logical index to the index in the data columns (wrap-around of the ring buffer)
+	 */
+	private int physicalIndex(int index) {
+		int idx = start + index;
+		return idx >= valuesX.length ? idx - valuesX.length : idx;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * whether the ring buffer has reused slots of this snapshot. It works like the check of a
+	 * sequence lock: read the data first, then call this method. If it returns false, everything
+	 * that was read belongs to the snapshot, otherwise the data may be mixed with newer points.
+	 * @return true if data of the snapshot may have been overwritten, always false for series that are no ring buffer
+	 */
+	public boolean isOverwritten() {
+		if (writeCount == null) {
+			return false;
+		}
+		// the barrier of a volatile write keeps the reads of the data before the read of the count
+		fence = true;
+		// the oldest point of the snapshot is overwritten by the point that is valuesX.length later
+		return writeCount.count - written > valuesX.length - size;
+	}
+
+	@Override
+	public double getX(int index) {
+		if (blocks != null) {
+			return blocks.getX(index);
+		}
+		if (index < mappedSize) {
+			return SeriesFile.getX(segments, index);
+		}
+		return valuesX[physicalIndex(index - mappedSize)];
+	}
+
+	@Override
+	public double getY(int index) {
+		if (blocks != null) {
+			return blocks.getY(index);
+		}
+		if (index < mappedSize) {
+			return SeriesFile.getY(segments, index);
+		}
+		return valuesY[physicalIndex(index - mappedSize)];
+	}
+
+	/**
+	 * returns the smallest y value in a range of the data in O(log n).
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @return the smallest y value, NaN if the range is empty
+	 */
+	public double getMinY(int fromIndex, int toIndex) {
+		return queryY(fromIndex, toIndex, false);
+	}
+
+	/**
+	 * returns the largest y value in a range of the data in O(log n).
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @return the largest y value, NaN if the range is empty
+	 */
+	public double getMaxY(int fromIndex, int toIndex) {
+		return queryY(fromIndex, toIndex, true);
+	}
+
+	private double queryY(int fromIndex, int toIndex, boolean largest) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Invalid range " + fromIndex + " to " + toIndex);
+		}
+		if (fromIndex == toIndex) {
+			return Double.NaN;
+		}
+		if (blocks != null) {
+			return blocks.getY(fromIndex, toIndex, largest);
+		}
+		if (minMaxY == null) {
+			double[] scanned = scanY(fromIndex, toIndex);
+			return largest ? scanned[3] : scanned[2];
+		}
+		int from = physicalIndex(fromIndex);
+		int to = from + toIndex - fromIndex;
+		if (to <= valuesY.length) {
+			return largest ? minMaxY.getMax(from, to) : minMaxY.getMin(from, to);
+		}
+		// range wraps around the end of the ring buffer
+		double a = largest ? minMaxY.getMax(from, valuesY.length) : minMaxY.getMin(from, valuesY.length);
+		double b = largest ? minMaxY.getMax(0, to - valuesY.length) : minMaxY.getMin(0, to - valuesY.length);
+		if (a != a) return b;
+		if (b != b) return a;
+		return largest ? Math.max(a, b) : Math.min(a, b);
+	}
+
+	/**
+	 * min and max of a range without index, in one pass over the range.
+	 * the last result is kept, a frame asks several times for the same range.
+	 * @return from, to, min, max
+	 */
+	private double[] scanY(int fromIndex, int toIndex) {
+		double[] scanned = scannedY;
+		if (scanned != null && scanned[0] == fromIndex && scanned[1] == toIndex) {
+			return scanned;
+		}
+		double lowest = Double.NaN;
+		double highest = Double.NaN;
+		for (int i=fromIndex; i<toIndex; i++) {
+			double y = getY(i);
+			lowest = MinMaxIndex.min(lowest, y);
+			highest = MinMaxIndex.max(highest, y);
+		}
+		scanned = new double[] {fromIndex, toIndex, lowest, highest};
+		scannedY = scanned;
+		return scanned;
+	}
+
+	/**
+	 * @return true if the series has a level of detail pyramid or is compressed, then the block headers are used
+	 */
+	public boolean isLevelOfDetail() {
+		return levelOfDetail != null || blocks != null;
+	}
+
+	/**
+	 * @return the compressed blocks, null if the series is not compressed
+	 */
+	CompressedColumns.Blocks getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * writes the summary of a range of the data into out, at the level whose buckets are
+	 * closest to one pixel wide.
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @param pixels width of the range in pixels
+	 * @param out
+	 * @return false if there is no level with more than one data point per pixel, then the raw data should be drawn
+	 */
+	boolean getLevelOfDetail(int fromIndex, int toIndex, float pixels, GraphViewDataBuffer out) {
+		if (blocks != null) {
+			return blocks.getLevelOfDetail(fromIndex, toIndex, pixels, out);
+		}
+		if (levelOfDetail == null || pixels < 1) {
+			return false;
+		}
+		double pointsPerPixel = (toIndex - fromIndex) / pixels;
+		int level = (int) Math.round(Math.log(pointsPerPixel) / Math.log(2));
+		level = Math.min(level, levelOfDetail.getLevelCount());
+		if (level < 1) {
+			return false;
+		}
+
+		out.clear();
+		int from = physicalIndex(fromIndex);
+		int to = from + toIndex - fromIndex;
+		if (to <= valuesY.length) {
+			levelOfDetail.emit(level, from, to, out);
+		} else {
+			// range wraps around the end of the ring buffer
+			levelOfDetail.emit(level, from, valuesY.length, out);
+			levelOfDetail.emit(level, 0, to - valuesY.length, out);
+		}
+		return true;
+	}
+
+	/**
+	 * values must be sorted by x.
+	 * @param valueX
+	 * @return index of the first data with x >= valueX, or size() if there is none
+	 */
+	int lowerBound(double valueX) {
+		if (blocks != null) {
+			return blocks.lowerBound(valueX);
+		}
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getX(mid) < valueX) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * values must be sorted by x.
+	 * @param valueX
+	 * @return index of the first data with x > valueX, or size() if there is none
+	 */
+	int upperBound(double valueX) {
+		if (blocks != null) {
+			return blocks.upperBound(valueX);
+		}
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getX(mid) <= valueX) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * a part of a snapshot (fromIndex inclusive, toIndex exclusive).
+	 * the data is not copied. A GraphView keeps one instance per series and
+	 * updates it only if the viewport or the snapshot has changed.
+	 * of a compressed snapshot only the blocks that overlap the part are decoded, into arrays
+	 * that are reused by the next updates. They are decoded on the first read, a graph that draws
+	 * the level of detail from the block headers doesn't decode them at all.
+	 */
+	static class SubSet implements GraphViewDataSet {
+		private SeriesSnapshot snapshot;
+		private int fromIndex;
+		private int toIndex;
+
+		/**
+		 * blocks of a compressed snapshot, null otherwise.
+		 * decodedOffset is the position of fromIndex in the decoded arrays
+		 */
+		private CompressedColumns.Blocks blocks;
+		private boolean decoded;
+		private double[] decodedX = new double[0];
+		private double[] decodedY = new double[0];
+		private int decodedOffset;
+
+		// what the indexes were computed for
+		private double minX;
+		private double maxX;
+
+		/**
+		 * resolves the viewport with two binary searches.
+		 * one data point before and after the viewport is included, for nice scrolling.
+		 * @param snapshot
+		 * @param minX start of the viewport
+		 * @param maxX end of the viewport
+		 */
+		void update(SeriesSnapshot snapshot, double minX, double maxX) {
+			if (this.snapshot == snapshot && this.minX == minX && this.maxX == maxX) {
+				// still valid
+				return;
+			}
+			this.snapshot = snapshot;
+			this.minX = minX;
+			this.maxX = maxX;
+			fromIndex = Math.max(0, snapshot.lowerBound(minX) - 1);
+			toIndex = Math.min(snapshot.size(), snapshot.upperBound(maxX) + 1);
+			blocks = snapshot.getBlocks();
+			decoded = false;
+		}
+
+		private void decode() {
+			decoded = true;
+			if (fromIndex == toIndex) {
+				decodedOffset = 0;
+				return;
+			}
+			int firstBlock = fromIndex >>> CompressedColumns.BLOCK_BITS;
+			int lastBlock = (toIndex - 1) >>> CompressedColumns.BLOCK_BITS;
+			int capacity = (lastBlock - firstBlock + 1) << CompressedColumns.BLOCK_BITS;
+			if (decodedX.length < capacity) {
+				decodedX = new double[capacity];
+				decodedY = new double[capacity];
+			}
+			int offset = 0;
+			for (int block=firstBlock; block<=lastBlock; block++) {
+				offset += blocks.decode(block, decodedX, decodedY, offset);
+			}
+			decodedOffset = fromIndex & CompressedColumns.BLOCK_MASK;
+		}
+
+		/**
+		 * @return the smallest y value of this part, NaN if it is empty
+		 */
+		double getMinY() {
+			return snapshot.getMinY(fromIndex, toIndex);
+		}
+
+		/**
+		 * @return the largest y value of this part, NaN if it is empty
+		 */
+		double getMaxY() {
+			return snapshot.getMaxY(fromIndex, toIndex);
+		}
+
+		int getFromIndex() {
+			return fromIndex;
+		}
+
+		int getToIndex() {
+			return toIndex;
+		}
+
+		@Override
+		public int size() {
+			return toIndex - fromIndex;
+		}
+
+		@Override
+		public double getX(int index) {
+			if (blocks != null) {
+				if (!decoded) {
+					decode();
+				}
+				return decodedX[decodedOffset + index];
+			}
+			return snapshot.getX(fromIndex + index);
+		}
+
+		@Override
+		public double getY(int index) {
+			if (blocks != null) {
+				if (!decoded) {
+					decode();
+				}
+				return decodedY[decodedOffset + index];
+			}
+			return snapshot.getY(fromIndex + index);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.jjoe64.graphview.compatible;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * runs a callback on the next frame (vsync).
+ * uses android.view.Choreographer (Android 4.1+), on older versions a Handler with the frame interval.
+ * the callback always runs on the ui thread. The scheduler can be created on any thread, e.g. with an
+ * offscreen graph on a worker thread, then it uses the Handler of the main looper.
+ * {@link #postFrame()} can be called from any thread.
+ *
+ * Copyright (C) 2011 Jonas Gehring
+ * Licensed under the GNU Lesser General Public License (LGPL)
+ * http://www.gnu.org/licenses/lgpl.html
+ */
+public class FrameScheduler {
+	private static final long FRAME_INTERVAL = 16;
+
+	private Object realFrameScheduler;
+	private Method method_postFrame;
+
+	private final Handler handler;
+	private final Runnable frameCallback;
+	private final Runnable handlerCallback;
+	private volatile long lastFrameTime;
+
+	/**
+	 * @param frameCallback will be run on the ui thread
+	 */
+	public FrameScheduler(final Runnable frameCallback) {
+		this.frameCallback = frameCallback;
+		this.handler = new Handler(Looper.getMainLooper());
+		this.handlerCallback = new Runnable() {
+			@Override
+			public void run() {
+				lastFrameTime = SystemClock.uptimeMillis();
+				frameCallback.run();
+			}
+		};
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			// the Choreographer belongs to the thread that creates it
+			return;
+		}
+		try {
+			// check if class is available
+			Class.forName("android.view.Choreographer");
+
+			// load class and methods
+			Class<?> classRealFrameScheduler = Class.forName("com.jjoe64.graphview.compatible.RealFrameScheduler");
+			method_postFrame = classRealFrameScheduler.getMethod("postFrame");
+
+			// create real FrameScheduler
+			Constructor<?> constructor = classRealFrameScheduler.getConstructor(Runnable.class);
+			realFrameScheduler = constructor.newInstance(frameCallback);
+		} catch (Exception e) {
+			// not available, fallback to handler
+			Log.w("com.jjoe64.graphview", "Choreographer not available, frames are scheduled with a Handler.");
+			method_postFrame = null;
+		}
+	}
+
+	/**
+	 * the callback will be run once on the next frame
+	 */
+	public void postFrame() {
+		if (method_postFrame != null) {
+			try {
+				method_postFrame.invoke(realFrameScheduler);
+				return;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		long delay = Math.max(0, lastFrameTime + FRAME_INTERVAL - SystemClock.uptimeMillis());
+		handler.postDelayed(handlerCallback, delay);
+	}
+}
@@ -0,0 +1,27 @@
+package com.jjoe64.graphview.compatible;
+
+import android.view.Choreographer;
+
+/**
+ * Copyright (C) 2011 Jonas Gehring
+ * Licensed under the GNU Lesser General Public License (LGPL)
+ * http://www.gnu.org/licenses/lgpl.html
+ */
+public class RealFrameScheduler implements Choreographer.FrameCallback {
+	private final Choreographer choreographer;
+	private final Runnable frameCallback;
+
+	public RealFrameScheduler(Runnable frameCallback) {
+		this.choreographer = Choreographer.getInstance();
+		this.frameCallback = frameCallback;
+	}
+
+	public void postFrame() {
+		choreographer.postFrameCallback(this);
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		frameCallback.run();
+	}
+}
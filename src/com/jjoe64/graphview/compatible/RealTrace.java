@@ -0,0 +1,18 @@
+package com.jjoe64.graphview.compatible;
+
+import android.os.Trace;
+
+/**
+ * Copyright (C) 2011 Jonas Gehring
+ * Licensed under the GNU Lesser General Public License (LGPL)
+ * http://www.gnu.org/licenses/lgpl.html
+ */
+public class RealTrace {
+	public static void beginSection(String sectionName) {
+		Trace.beginSection(sectionName);
+	}
+
+	public static void endSection() {
+		Trace.endSection();
+	}
+}
@@ -0,0 +1,69 @@
+package com.jjoe64.graphview.compatible;
+
+import java.lang.reflect.Method;
+
+import android.util.Log;
+
+/**
+ * sections for systrace.
+ * uses android.os.Trace (Android 4.3+), on older versions the calls do nothing.
+ *
+ * Copyright (C) 2011 Jonas Gehring
+ * Licensed under the GNU Lesser General Public License (LGPL)
+ * http://www.gnu.org/licenses/lgpl.html
+ */
+public class Trace {
+	private static final Method method_beginSection;
+	private static final Method method_endSection;
+	private static final Object[] NO_ARGS = new Object[0];
+
+	static {
+		Method beginSection = null;
+		Method endSection = null;
+		try {
+			// check if class is available
+			Class.forName("android.os.Trace");
+
+			// load class and methods
+			Class<?> classRealTrace = Class.forName("com.jjoe64.graphview.compatible.RealTrace");
+			beginSection = classRealTrace.getMethod("beginSection", String.class);
+			endSection = classRealTrace.getMethod("endSection");
+		} catch (Exception e) {
+			// not available
+			Log.w("com.jjoe64.graphview", "android.os.Trace not available, no trace sections are written.");
+			beginSection = null;
+			endSection = null;
+		}
+		method_beginSection = beginSection;
+		method_endSection = endSection;
+	}
+
+	private Trace() {
+	}
+
+	/**
+	 * @param sectionName shown in systrace
+	 */
+	public static void beginSection(String sectionName) {
+		if (method_beginSection != null) {
+			try {
+				method_beginSection.invoke(null, sectionName);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * ends the last section that was begun on this thread
+	 */
+	public static void endSection() {
+		if (method_endSection != null) {
+			try {
+				method_endSection.invoke(null, NO_ARGS);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}